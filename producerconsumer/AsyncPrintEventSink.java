@@ -0,0 +1,217 @@
+package producerconsumer;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A `PrintEventSink` that keeps console I/O off the caller's thread (and out of
+ * the queue's lock). `onEvent()` copies the event into a slot of a pre-allocated
+ * ring and returns; a single writer thread formats every pending event into a
+ * reused buffer and writes them with one `write()`/`flush()` per batch.
+ *
+ * Nothing is allocated per event on either side once the buffers have grown to
+ * the longest line. When the ring is full, events are dropped (and counted)
+ * rather than making the caller wait; the writer reports how many were lost.
+ *
+ * The ring uses the same per-slot sequence scheme as `RingBufferTaskQueue`, with
+ * any number of producers and exactly one consumer (the writer).
+ */
+class AsyncPrintEventSink implements PrintEventSink, AutoCloseable {
+    private static final int MAX_BATCH = 256;
+
+    private static final class Slot {
+        QueueEvent event;
+        int jobId;
+        int count;
+        boolean hasTask;
+        final StringBuilder document = new StringBuilder(32);
+    }
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the writer thread
+    private long head;
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported;
+
+    private final PrintStream out;
+    private final StringBuilder lines = new StringBuilder(MAX_BATCH * 64);
+    private final CharsetEncoder encoder;
+    private char[] chars = new char[MAX_BATCH * 64];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private final byte[] bytes = new byte[8192];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+
+    private final WaitStrategy waitStrategy = WaitStrategy.timedPark(1, TimeUnit.MILLISECONDS);
+    private final BooleanSupplier ready;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AsyncPrintEventSink(int capacity) {
+        this(capacity, System.out, Charset.defaultCharset());
+    }
+
+    /**
+     * @param charset How to encode lines for `out`; the writer bypasses the
+     *                stream's own (allocating) character encoding.
+     */
+    public AsyncPrintEventSink(int capacity, PrintStream out, Charset charset) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Slot[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.out = out;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.ready = () -> closed || sequences.getAcquire((int) head & mask) == head + 1;
+
+        this.writer = new Thread(this::writeLoop, "print-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void onEvent(QueueEvent event, PrintTask task, int count) {
+        long position = tail.get();
+        while (true) {
+            long difference = sequences.getAcquire((int) position & mask) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Full: the writer is behind, don't wait for it
+                dropped.increment();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        int index = (int) position & mask;
+        Slot slot = slots[index];
+        slot.event = event;
+        slot.count = count;
+        slot.hasTask = task != null;
+        slot.document.setLength(0);
+        if (task != null) {
+            slot.jobId = task.getJobId();
+            slot.document.append(task.getDocument());
+        }
+        sequences.setRelease(index, position + 1);
+    }
+
+    /**
+     * Events dropped so far because the writer couldn't keep up.
+     */
+    public long droppedEvents() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops the writer after it has written every event produced so far. If
+     * interrupted while waiting, returns early with the interrupt flag set; the
+     * writer still drains in the background.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (!closed) {
+                waitStrategy.await(this, ready, Long.MAX_VALUE);
+                while (drain() > 0) {
+                    write();
+                }
+            }
+            // Whatever was produced before `close()`
+            while (drain() > 0) {
+                write();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Formats up to `MAX_BATCH` published events into `lines`
+    private int drain() {
+        lines.setLength(0);
+        int drained = 0;
+        while (drained < MAX_BATCH) {
+            int index = (int) head & mask;
+            if (sequences.getAcquire(index) != head + 1) {
+                break;
+            }
+            Slot slot = slots[index];
+            slot.event.appendTo(lines, slot.jobId, slot.hasTask ? slot.document : null, slot.count);
+            lines.append(System.lineSeparator());
+            // Hands the slot to the producer of the next lap
+            sequences.setRelease(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+
+        long droppedNow = dropped.sum();
+        if (droppedNow != droppedReported) {
+            lines.append("... ").append(droppedNow - droppedReported).append(" events dropped")
+                    .append(System.lineSeparator());
+            droppedReported = droppedNow;
+            drained++;
+        }
+        return drained;
+    }
+
+    // Encodes `lines` into the reused byte buffer and writes it out in chunks
+    private void write() {
+        int length = lines.length();
+        if (chars.length < length) {
+            chars = new char[length];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        lines.getChars(0, length, chars, 0);
+        charBuffer.clear().limit(length);
+
+        encoder.reset();
+        while (encoder.encode(charBuffer, byteBuffer, true).isOverflow()) {
+            writeBytes();
+        }
+        while (encoder.flush(byteBuffer).isOverflow()) {
+            writeBytes();
+        }
+        writeBytes();
+        out.flush();
+    }
+
+    private void writeBytes() {
+        out.write(bytes, 0, byteBuffer.position());
+        byteBuffer.clear();
+    }
+}
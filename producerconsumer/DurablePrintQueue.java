@@ -0,0 +1,119 @@
+package producerconsumer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A `PrintQueue` that never makes producers wait. Tasks go to a bounded
+ * in-memory queue while it has room; under backpressure they spill to a
+ * `MappedSegmentLog` instead of blocking the producer. Consumers drain memory
+ * first, then the log, so tasks spilled before a restart are printed after it.
+ *
+ * Only the spilled overflow is durable: tasks in the in-memory queue, ie: the
+ * whole backlog while it fits, are lost if the process dies, just as with the
+ * wrapped queue on its own.
+ *
+ * While anything is spilled, new tasks are appended to the log too, so a
+ * producer's tasks are never overtaken by its own later tasks.
+ */
+class DurablePrintQueue implements PrintQueue {
+    // Producers don't signal the in-memory queue's waiters, so consumers can't
+    // block on it; park briefly and re-check instead
+    private static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.timedPark(1, TimeUnit.MILLISECONDS);
+
+    private final PrintQueue memory;
+    private final MappedSegmentLog log;
+    private final WaitStrategy waitStrategy;
+    private final BooleanSupplier notEmpty;
+
+    public DurablePrintQueue(PrintQueue memory, MappedSegmentLog log) {
+        this(memory, log, DEFAULT_WAIT_STRATEGY);
+    }
+
+    public DurablePrintQueue(PrintQueue memory, MappedSegmentLog log, WaitStrategy waitStrategy) {
+        this.memory = memory;
+        this.log = log;
+        this.waitStrategy = waitStrategy;
+        this.notEmpty = () -> memory.size() > 0 || !log.isEmpty();
+    }
+
+    @Override
+    public void produce(PrintTask task) {
+        offer(task);
+    }
+
+    /**
+     * Always succeeds; the log is unbounded (up to the disk).
+     */
+    @Override
+    public boolean offer(PrintTask task) {
+        if (!log.isEmpty() || !memory.offer(task)) {
+            log.append(task);
+            // The log keeps a copy
+            task.release();
+        }
+        waitStrategy.signalAll(this);
+        return true;
+    }
+
+    @Override
+    public PrintTask consume() throws InterruptedException {
+        PrintTask task;
+        while ((task = poll()) == null) {
+            waitStrategy.await(this, notEmpty, Long.MAX_VALUE);
+        }
+        return task;
+    }
+
+    @Override
+    public PrintTask poll() {
+        PrintTask task = memory.poll();
+        return task != null ? task : log.poll();
+    }
+
+    @Override
+    public int size() {
+        return memory.size() + log.size();
+    }
+
+    @Override
+    public void produceAll(List<PrintTask> tasks) {
+        for (PrintTask task : tasks) {
+            offer(task);
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super PrintTask> buffer, int maxTasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        // The do/while below always takes the first task
+        if (maxTasks <= 0) {
+            return 0;
+        }
+
+        long remaining = unit.toNanos(timeout);
+        PrintTask task;
+        while ((task = poll()) == null) {
+            if (remaining <= 0) {
+                return 0;
+            }
+            remaining = waitStrategy.await(this, notEmpty, remaining);
+        }
+
+        int count = 0;
+        do {
+            buffer.add(task);
+            count++;
+        } while (count < maxTasks && (task = poll()) != null);
+        return count;
+    }
+
+    /**
+     * Forces spilled tasks and the consumer position to disk.
+     */
+    public void flush() {
+        log.flush();
+    }
+}
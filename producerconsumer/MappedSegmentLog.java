@@ -0,0 +1,270 @@
+package producerconsumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * An append-only, memory-mapped log of print tasks that survives a restart.
+ * Tasks are appended to fixed-size segment files (`00000000000000000000.seg`,
+ * ...) and read back in order; fully consumed segments are deleted.
+ *
+ * A record is `[int marker][int jobId][UTF-8 document]`, padded to 4 bytes. The
+ * marker is the document length + 1 and is written last with release semantics,
+ * so a reader (or recovery after a crash) never sees a half-written record: 0
+ * means "nothing here yet", -1 means "continue in the next segment".
+ *
+ * The consumer position (segment, offset) lives in a mapped `consumer.offset`
+ * file, updated with one 8-byte write per consumed task. Writes to a mapping
+ * survive a process crash as soon as they're made; `flush()` forces them to
+ * disk to also survive a power loss. A task is marked consumed before it is
+ * returned, ie: delivery is at-most-once.
+ */
+class MappedSegmentLog implements AutoCloseable {
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // Plain ByteBuffer accessors give no ordering guarantees; this gives the
+    // marker acquire/release semantics on the (direct, page-aligned) mapping
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final MappedByteBuffer consumerOffset;
+    // Segments between the consumer and the producer; both sides must use the
+    // same mapping for the marker's release/acquire to pair up
+    private final ConcurrentMap<Integer, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Object writeLock = new Object();
+    private int writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private int writePosition;
+
+    private final Object readLock = new Object();
+    private int readSegment;
+    private MappedByteBuffer readBuffer;
+    private int readPosition;
+
+    private MappedSegmentLog(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.consumerOffset = map(directory.resolve("consumer.offset"), Long.BYTES);
+        recover();
+    }
+
+    public static MappedSegmentLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens (or creates) the log in `directory`. Existing segments keep the size
+     * they were created with.
+     */
+    public static MappedSegmentLog open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 64 || segmentSize % 4 != 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        return new MappedSegmentLog(directory, segmentSize);
+    }
+
+    /**
+     * Appends the task; never blocks on consumers. Throws `UncheckedIOException`
+     * if a new segment can't be created.
+     */
+    public void append(PrintTask task) {
+        byte[] document = task.getDocument().toString().getBytes(StandardCharsets.UTF_8);
+        int recordSize = recordSize(document.length);
+        // Every segment keeps room for the end-of-segment marker
+        if (recordSize > segmentSize - 4) {
+            throw new IllegalArgumentException("Task too large for a segment: " + recordSize + " bytes");
+        }
+
+        synchronized (writeLock) {
+            if (writePosition + recordSize > writeBuffer.capacity() - 4) {
+                // Make the next segment visible before pointing the consumer at it
+                MappedByteBuffer next = segment(writeSegment + 1);
+                INT.setRelease(writeBuffer, writePosition, END_OF_SEGMENT);
+                writeSegment++;
+                writeBuffer = next;
+                writePosition = 0;
+            }
+            writeBuffer.putInt(writePosition + 4, task.getJobId());
+            writeBuffer.put(writePosition + HEADER_SIZE, document);
+            INT.setRelease(writeBuffer, writePosition, document.length + 1);
+            writePosition += recordSize;
+        }
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Returns the oldest unconsumed task, or `null` if there is none.
+     */
+    public PrintTask poll() {
+        synchronized (readLock) {
+            while (true) {
+                int marker = (int) INT.getAcquire(readBuffer, readPosition);
+                if (marker == 0) {
+                    return null;
+                }
+                if (marker == END_OF_SEGMENT) {
+                    nextReadSegment();
+                    continue;
+                }
+
+                int jobId = readBuffer.getInt(readPosition + 4);
+                byte[] document = new byte[marker - 1];
+                readBuffer.get(readPosition + HEADER_SIZE, document);
+                readPosition += recordSize(document.length);
+                commitReadPosition();
+                pending.decrementAndGet();
+                return new PrintTask(jobId, new String(document, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Whether every appended task has been consumed. Tasks appended concurrently
+     * may not be counted yet.
+     */
+    public boolean isEmpty() {
+        return pending.get() <= 0;
+    }
+
+    public int size() {
+        return Math.max(0, pending.get());
+    }
+
+    /**
+     * Forces appended tasks and the consumer position to disk.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            writeBuffer.force();
+        }
+        synchronized (readLock) {
+            consumerOffset.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        // A mapping is only released once the buffer is garbage collected
+        segments.clear();
+    }
+
+    private void recover() throws IOException {
+        long offset = consumerOffset.getLong(0);
+        readSegment = (int) (offset >>> 32);
+        readPosition = (int) offset;
+
+        List<Integer> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(existing::add);
+        }
+        // Segments before the consumer were fully consumed; we crashed before
+        // deleting them
+        for (int index : existing) {
+            if (index < readSegment) {
+                Files.deleteIfExists(segmentPath(index));
+            }
+        }
+        existing.removeIf(index -> index < readSegment);
+        if (!existing.isEmpty() && existing.get(0) != readSegment) {
+            readSegment = existing.get(0);
+            readPosition = 0;
+        }
+        readBuffer = segment(readSegment);
+        commitReadPosition();
+
+        // Count what's left and find where the producer stopped
+        writeSegment = readSegment;
+        writeBuffer = readBuffer;
+        writePosition = readPosition;
+        while (true) {
+            int marker = writeBuffer.getInt(writePosition);
+            if (marker == 0) {
+                break;
+            }
+            if (marker == END_OF_SEGMENT) {
+                writeSegment++;
+                writeBuffer = segment(writeSegment);
+                writePosition = 0;
+                continue;
+            }
+            writePosition += recordSize(marker - 1);
+            pending.incrementAndGet();
+        }
+    }
+
+    private void nextReadSegment() {
+        int consumed = readSegment;
+        readSegment++;
+        readBuffer = segment(readSegment);
+        readPosition = 0;
+        // Move the consumer past the segment before deleting it
+        commitReadPosition();
+        segments.remove(consumed);
+        try {
+            Files.deleteIfExists(segmentPath(consumed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Segment and position in a single write, so a crash can't tear them apart
+    private void commitReadPosition() {
+        consumerOffset.putLong(0, (long) readSegment << 32 | readPosition);
+    }
+
+    private MappedByteBuffer segment(int index) {
+        return segments.computeIfAbsent(index, i -> {
+            try {
+                Path path = segmentPath(i);
+                long size = Files.exists(path) ? Files.size(path) : segmentSize;
+                return map(path, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static int recordSize(int documentLength) {
+        return (HEADER_SIZE + documentLength + 3) & ~3;
+    }
+
+    // The mapping stays valid after the channel is closed; a new file is
+    // zero-filled, ie: every marker starts out as "nothing here yet"
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package producerconsumer;
+
+/**
+ * Where producers, consumers and queues report what they're doing. Events are
+ * often reported while holding the queue's lock, so a sink must be cheap:
+ * - `console()`: prints every event right away. Simple, but the queue's
+ * throughput is then bounded by stdout.
+ * - `AsyncPrintEventSink`: copies the event into a pre-allocated ring and
+ * returns; a background thread prints in batches.
+ * - `noop()`: discards everything.
+ */
+@FunctionalInterface
+interface PrintEventSink {
+    /**
+     * @param task  The task for `PRODUCED`/`CONSUMED`, otherwise `null`. Only
+     *              valid during the call; pooled tasks are reused.
+     * @param count The batch size for `BATCH_PRODUCED`/`BATCH_CONSUMED`.
+     */
+    void onEvent(QueueEvent event, PrintTask task, int count);
+
+    default void onEvent(QueueEvent event, PrintTask task) {
+        onEvent(event, task, 1);
+    }
+
+    default void onEvent(QueueEvent event, int count) {
+        onEvent(event, null, count);
+    }
+
+    default void onEvent(QueueEvent event) {
+        onEvent(event, null, 0);
+    }
+
+    static PrintEventSink console() {
+        return (event, task, count) -> {
+            StringBuilder line = new StringBuilder();
+            if (task == null) {
+                event.appendTo(line, 0, null, count);
+            } else {
+                event.appendTo(line, task.getJobId(), task.getDocument(), count);
+            }
+            System.out.println(line);
+        };
+    }
+
+    static PrintEventSink noop() {
+        return (event, task, count) -> {
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package producerconsumer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shared buffer between `User` producers and `Printer` consumers. Producers
+ * block while the buffer is full, consumers while it is empty.
+ */
+interface PrintQueue extends ProducerQueue {
+    PrintTask consume() throws InterruptedException;
+
+    /**
+     * Non-blocking `consume()`; returns `null` if the queue is empty.
+     */
+    PrintTask poll();
+
+    /**
+     * Waits up to `timeout` for at least one task, then moves up to `maxTasks` into
+     * `buffer` without waiting any further. Returns how many were moved; 0 if the
+     * timeout elapsed.
+     */
+    int drainTo(Collection<? super PrintTask> buffer, int maxTasks, long timeout, TimeUnit unit)
+            throws InterruptedException;
+}
@@ -0,0 +1,53 @@
+package producerconsumer;
+
+/**
+ * A fixed set of pre-allocated, reusable `PrintTask`s, so steady-state producing
+ * allocates nothing (no task, no document string) and leaves the GC nothing to
+ * collect. A producer claims a task, fills it in with `reset()` and produces
+ * it; the consumer calls `release()` once it has processed it.
+ *
+ * The pool also bounds how many tasks are in flight: when all are claimed,
+ * `claim()` waits until a consumer releases one. Size it above the queue
+ * capacity plus the number of consumers, or producers will wait on the pool
+ * rather than the queue.
+ */
+class PrintTaskPool {
+    // Free tasks; any thread may claim or release
+    private final RingBufferTaskQueue free;
+    private final int size;
+
+    public PrintTaskPool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid pool size: " + size);
+        }
+        this.free = RingBufferTaskQueue.multiProducer(size);
+        this.size = size;
+        for (int i = 0; i < size; i++) {
+            free.offer(new PrintTask(this));
+        }
+    }
+
+    /**
+     * Waits for a free task and returns it; the caller owns it until it's
+     * produced, and the consumer owns it until it's released.
+     */
+    public PrintTask claim() throws InterruptedException {
+        PrintTask task = free.consume();
+        task.claim();
+        return task;
+    }
+
+    // Called by `PrintTask.release()`; the ring holds at least `size` tasks, so
+    // this never fails
+    void release(PrintTask task) {
+        free.offer(task);
+    }
+
+    public int available() {
+        return free.size();
+    }
+
+    public int size() {
+        return size;
+    }
+}
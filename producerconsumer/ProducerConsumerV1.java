@@ -1,15 +1,75 @@
 package producerconsumer;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
+// A task is either one-off (immutable, garbage once printed) or owned by a
+// `PrintTaskPool` and recycled: claimed, filled in with `reset()`, produced,
+// consumed and handed back with `release()`
 class PrintTask {
-    private final int jobId;
-    private final String document;
+    private int jobId;
+    private CharSequence document;
+    private final PrintTaskPool pool;
+    private boolean claimed;
 
     public PrintTask(int jobId, String document) {
         this.jobId = jobId;
         this.document = document;
+        this.pool = null;
+    }
+
+    PrintTask(PrintTaskPool pool) {
+        this.document = new StringBuilder(32);
+        this.pool = pool;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    // Only valid until a pooled task is released
+    public CharSequence getDocument() {
+        return document;
+    }
+
+    /**
+     * Sets the job id of a claimed, pooled task and returns its (cleared)
+     * document to append to, eg: `task.reset(id).append("Document-").append(id)`.
+     */
+    public StringBuilder reset(int jobId) {
+        if (pool == null || !claimed) {
+            throw new IllegalStateException("Not a claimed pooled task: " + this);
+        }
+        this.jobId = jobId;
+        StringBuilder builder = (StringBuilder) document;
+        builder.setLength(0);
+        return builder;
+    }
+
+    /**
+     * Hands a pooled task back once it has been processed; a no-op for one-off
+     * tasks. The task must not be used afterwards.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        if (!claimed) {
+            throw new IllegalStateException("Released twice: " + this);
+        }
+        claimed = false;
+        pool.release(this);
+    }
+
+    // Called by the pool; the queues publish the task safely, so the flag needs
+    // no synchronization of its own
+    void claim() {
+        claimed = true;
     }
 
     @Override
@@ -18,54 +78,181 @@ class PrintTask {
     }
 }
 
-class TaskQueue {
+class TaskQueue implements PrintQueue {
     private final Queue<PrintTask> queue = new LinkedList<>();
     private final int capacity;
+    private final WaitStrategy waitStrategy;
+    private final PrintEventSink events;
+    // Mirrors `queue.size()` so waiting threads can check it without the lock
+    private volatile int size = 0;
+    private final BooleanSupplier notFull;
+    private final BooleanSupplier notEmpty;
 
     public TaskQueue(int capacity) {
+        this(capacity, WaitStrategy.blocking());
+    }
+
+    public TaskQueue(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, PrintEventSink.console());
+    }
+
+    /**
+     * @param events Called while holding the lock (so events are reported in
+     *               queue order); use an `AsyncPrintEventSink` to keep console I/O
+     *               out of the critical section.
+     */
+    public TaskQueue(int capacity, WaitStrategy waitStrategy, PrintEventSink events) {
         this.capacity = capacity;
+        this.waitStrategy = waitStrategy;
+        this.events = events;
+        this.notFull = () -> size < capacity;
+        this.notEmpty = () -> size > 0;
     }
 
-    public synchronized void produce(PrintTask task) throws InterruptedException {
-        // Wait till the queue is full
-        while (queue.size() == capacity) {
-            System.out.println("The queue is full, producer is waiting...");
-            wait(); // Releases the lock and waits
+    @Override
+    public void produce(PrintTask task) throws InterruptedException {
+        while (true) {
+            synchronized (this) {
+                if (queue.size() < capacity) {
+                    queue.add(task);
+                    size = queue.size();
+                    events.onEvent(QueueEvent.PRODUCED, task);
+                    // Wakes up all the threads (producers or consumers) for the blocking strategy
+                    waitStrategy.signalAll(this);
+                    return;
+                }
+                events.onEvent(QueueEvent.QUEUE_FULL);
+            }
+
+            // Wait till the queue has room. The blocking strategy releases the lock and
+            // waits on this monitor, the others spin/park outside of the lock.
+            waitStrategy.await(this, notFull, Long.MAX_VALUE);
         }
+    }
 
-        queue.add(task);
-        System.out.println("Produced: " + task);
-        notifyAll(); // Wakes up all the threads (producers or consumers)
+    @Override
+    public PrintTask consume() throws InterruptedException {
+        while (true) {
+            synchronized (this) {
+                if (!queue.isEmpty()) {
+                    PrintTask task = queue.poll();
+                    size = queue.size();
+                    events.onEvent(QueueEvent.CONSUMED, task);
+                    waitStrategy.signalAll(this);
+                    return task;
+                }
+                events.onEvent(QueueEvent.QUEUE_EMPTY);
+            }
+
+            // Wait till the queue has a task
+            waitStrategy.await(this, notEmpty, Long.MAX_VALUE);
+        }
     }
 
-    public synchronized PrintTask consume() throws InterruptedException {
-        // Wait till the queue is empty
-        while (queue.isEmpty()) {
-            System.out.println("Queue is empty, consumer is waiting...");
-            wait(); // Releases the lock and waits
+    @Override
+    public synchronized boolean offer(PrintTask task) {
+        if (queue.size() == capacity) {
+            return false;
         }
+        queue.add(task);
+        size = queue.size();
+        waitStrategy.signalAll(this);
+        return true;
+    }
 
+    @Override
+    public synchronized PrintTask poll() {
         PrintTask task = queue.poll();
-        System.out.println("Consumed: " + task);
-        notifyAll();
+        if (task != null) {
+            size = queue.size();
+            waitStrategy.signalAll(this);
+        }
         return task;
     }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void produceAll(List<PrintTask> tasks) throws InterruptedException {
+        int next = 0;
+        while (next < tasks.size()) {
+            synchronized (this) {
+                if (queue.size() < capacity) {
+                    // Add as many as fit, then wake everybody up once for the whole chunk
+                    int count = 0;
+                    while (next < tasks.size() && queue.size() < capacity) {
+                        queue.add(tasks.get(next++));
+                        count++;
+                    }
+                    size = queue.size();
+                    events.onEvent(QueueEvent.BATCH_PRODUCED, count);
+                    waitStrategy.signalAll(this);
+                    continue;
+                }
+                events.onEvent(QueueEvent.QUEUE_FULL);
+            }
+
+            waitStrategy.await(this, notFull, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super PrintTask> buffer, int maxTasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        while (true) {
+            synchronized (this) {
+                if (!queue.isEmpty()) {
+                    int count = 0;
+                    while (count < maxTasks && !queue.isEmpty()) {
+                        buffer.add(queue.poll());
+                        count++;
+                    }
+                    size = queue.size();
+                    events.onEvent(QueueEvent.BATCH_CONSUMED, count);
+                    waitStrategy.signalAll(this);
+                    return count;
+                }
+            }
+
+            if (remaining <= 0) {
+                return 0;
+            }
+            remaining = waitStrategy.await(this, notEmpty, remaining);
+        }
+    }
 }
 
 // The producer
 class User implements Runnable {
-    private final TaskQueue taskQueue;
+    private final ProducerQueue taskQueue;
+    // `null` allocates a new task per job
+    private final PrintTaskPool pool;
     private int jobId = 0;
 
-    public User(TaskQueue taskQueue) {
+    public User(ProducerQueue taskQueue) {
+        this(taskQueue, null);
+    }
+
+    public User(ProducerQueue taskQueue, PrintTaskPool pool) {
         this.taskQueue = taskQueue;
+        this.pool = pool;
     }
 
     @Override
     public void run() {
         try {
             while (true) {
-                PrintTask task = new PrintTask(++jobId, "Document-" + jobId);
+                PrintTask task;
+                if (pool == null) {
+                    task = new PrintTask(++jobId, "Document-" + jobId);
+                } else {
+                    task = pool.claim();
+                    task.reset(++jobId).append("Document-").append(jobId);
+                }
                 taskQueue.produce(task);
                 Thread.sleep(100); // Simulate time taken to create a task
             }
@@ -77,9 +264,9 @@ class User implements Runnable {
 
 // The Consumer
 class Printer implements Runnable {
-    private final TaskQueue taskQueue;
+    private final PrintQueue taskQueue;
 
-    public Printer(TaskQueue taskQueue) {
+    public Printer(PrintQueue taskQueue) {
         this.taskQueue = taskQueue;
     }
 
@@ -87,8 +274,38 @@ class Printer implements Runnable {
     public void run() {
         try {
             while (true) {
-                taskQueue.consume();
+                PrintTask task = taskQueue.consume();
                 Thread.sleep(500); // Simulate processing the task
+                task.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// Consumer that takes up to `batchSize` tasks per lock acquisition instead of one
+class BatchPrinter implements Runnable {
+    private final PrintQueue taskQueue;
+    private final int batchSize;
+
+    public BatchPrinter(PrintQueue taskQueue, int batchSize) {
+        this.taskQueue = taskQueue;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run() {
+        List<PrintTask> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                batch.clear();
+                if (taskQueue.drainTo(batch, batchSize, 1, TimeUnit.SECONDS) > 0) {
+                    Thread.sleep(500); // Simulate processing the batch
+                    for (PrintTask task : batch) {
+                        task.release();
+                    }
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -98,7 +315,13 @@ class Printer implements Runnable {
 
 public class ProducerConsumerV1 {
     public static void main(String[] args) {
-        TaskQueue taskQueue = new TaskQueue(5); // Buffer size of 5
+        // Buffer size of 5; events are printed by a background writer, not under the lock
+        PrintQueue taskQueue = new TaskQueue(5, WaitStrategy.blocking(), new AsyncPrintEventSink(1024));
+        // Lock-free alternative: PrintQueue taskQueue = RingBufferTaskQueue.singleProducer(8);
+        // Allocation-free alternative: `new User(taskQueue, new PrintTaskPool(16))`
+        // Sharded alternative, one queue per printer:
+        // ShardedPrintQueue taskQueue = new ShardedPrintQueue(2, i -> RingBufferTaskQueue.multiProducer(8));
+        // and `new Printer(taskQueue.shard(0))`, `new Printer(taskQueue.shard(1))` below
 
         // One user (producer) and two printers (consumers)
         Thread userThread = new Thread(new User(taskQueue));
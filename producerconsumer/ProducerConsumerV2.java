@@ -2,22 +2,42 @@ package producerconsumer;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.function.BooleanSupplier;
 
 // Producer
 class UserModern implements Runnable {
     private final BlockingQueue<PrintTask> queue;
+    // `null` allocates a new task per job
+    private final PrintTaskPool pool;
+    private final PrintEventSink events;
     private int jobId = 0;
 
     public UserModern(BlockingQueue<PrintTask> queue) {
+        this(queue, null);
+    }
+
+    public UserModern(BlockingQueue<PrintTask> queue, PrintTaskPool pool) {
+        this(queue, pool, PrintEventSink.console());
+    }
+
+    public UserModern(BlockingQueue<PrintTask> queue, PrintTaskPool pool, PrintEventSink events) {
         this.queue = queue;
+        this.pool = pool;
+        this.events = events;
     }
 
     @Override
     public void run() {
         try {
             while (true) {
-                PrintTask task = new PrintTask(++jobId, "Document-" + jobId);
-                System.out.println("Producing: " + task);
+                PrintTask task;
+                if (pool == null) {
+                    task = new PrintTask(++jobId, "Document-" + jobId);
+                } else {
+                    task = pool.claim();
+                    task.reset(++jobId).append("Document-").append(jobId);
+                }
+                events.onEvent(QueueEvent.PRODUCED, task);
                 queue.put(task);
                 Thread.sleep(100);
             }
@@ -30,32 +50,63 @@ class UserModern implements Runnable {
 // Consumer
 class PrinterModern implements Runnable {
     private final BlockingQueue<PrintTask> queue;
+    // `null` means block in `take()`
+    private final WaitStrategy waitStrategy;
+    private final BooleanSupplier notEmpty;
+    private final PrintEventSink events;
 
     public PrinterModern(BlockingQueue<PrintTask> queue) {
+        this(queue, WaitStrategy.blocking());
+    }
+
+    public PrinterModern(BlockingQueue<PrintTask> queue, WaitStrategy waitStrategy) {
+        this(queue, waitStrategy, PrintEventSink.console());
+    }
+
+    public PrinterModern(BlockingQueue<PrintTask> queue, WaitStrategy waitStrategy, PrintEventSink events) {
         this.queue = queue;
+        this.events = events;
+        // A `BlockingQueue` already knows how to block, and nobody would ever signal
+        // its monitor, so blocking simply means `take()`
+        this.waitStrategy = waitStrategy instanceof WaitStrategy.Blocking ? null : waitStrategy;
+        this.notEmpty = () -> !queue.isEmpty();
     }
 
     @Override
     public void run() {
         try {
             while (true) {
-                PrintTask task = queue.take();
-                System.out.println("Consuming: " + task);
+                PrintTask task = next();
+                events.onEvent(QueueEvent.CONSUMED, task);
                 Thread.sleep(500);
+                task.release();
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
+
+    private PrintTask next() throws InterruptedException {
+        if (waitStrategy == null) {
+            return queue.take();
+        }
+
+        PrintTask task;
+        while ((task = queue.poll()) == null) {
+            waitStrategy.await(queue, notEmpty, Long.MAX_VALUE);
+        }
+        return task;
+    }
 }
 
 public class ProducerConsumerV2 {
     public static void main(String[] args) {
         BlockingQueue<PrintTask> queue = new ArrayBlockingQueue<>(5);
+        PrintEventSink events = new AsyncPrintEventSink(1024);
 
-        Thread userThread = new Thread(new UserModern(queue));
-        Thread printerThread1 = new Thread(new PrinterModern(queue));
-        Thread printerThread2 = new Thread(new PrinterModern(queue));
+        Thread userThread = new Thread(new UserModern(queue, null, events));
+        Thread printerThread1 = new Thread(new PrinterModern(queue, WaitStrategy.blocking(), events));
+        Thread printerThread2 = new Thread(new PrinterModern(queue, WaitStrategy.blocking(), events));
 
         System.out.println("Starting modern print simulation...");
         userThread.start();
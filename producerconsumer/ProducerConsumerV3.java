@@ -0,0 +1,243 @@
+package producerconsumer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Producer: creates a task only when a subscriber has asked for one. All
+// subscribers share the job ids, so each job goes to exactly one printer.
+class UserPublisher implements Flow.Publisher<PrintTask> {
+    private final Executor executor;
+    private final int maxJobs;
+    private final PrintEventSink events;
+    private final AtomicInteger jobId = new AtomicInteger();
+
+    public UserPublisher(Executor executor, int maxJobs, PrintEventSink events) {
+        this.executor = executor;
+        this.maxJobs = maxJobs;
+        this.events = events;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PrintTask> subscriber) {
+        subscriber.onSubscribe(new JobSubscription(subscriber));
+    }
+
+    // Signals are delivered by one drain loop at a time on the executor, so the
+    // subscriber never sees concurrent `onNext()` calls
+    private class JobSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super PrintTask> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Number of drain requests; only the one that raises it from 0 runs the loop
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        JobSubscription(Flow.Subscriber<? super PrintTask> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Non-positive request: " + n);
+            } else {
+                // Saturates at Long.MAX_VALUE, ie: unbounded
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                long requested = demand.get();
+                long emitted = 0;
+                while (!cancelled) {
+                    if (error != null) {
+                        cancelled = true;
+                        subscriber.onError(error);
+                        return;
+                    }
+                    if (emitted == requested) {
+                        break;
+                    }
+                    int id = jobId.incrementAndGet();
+                    if (id > maxJobs) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    PrintTask task = new PrintTask(id, "Document-" + id);
+                    events.onEvent(QueueEvent.PRODUCED, task);
+                    subscriber.onNext(task);
+                    emitted++;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
+
+// A pipeline stage: transforms every task and passes demand straight upstream,
+// so it buffers nothing. Serves a single subscriber.
+class PrintStage<T, R> implements Flow.Processor<T, R> {
+    private final Function<? super T, ? extends R> transform;
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super R> downstream;
+
+    public PrintStage(Function<? super T, ? extends R> transform) {
+        this.transform = transform;
+    }
+
+    // Whichever of `subscribe()`/`onSubscribe()` comes second links the two sides
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        synchronized (this) {
+            if (downstream != null) {
+                throw new IllegalStateException("Already subscribed");
+            }
+            downstream = subscriber;
+            if (upstream == null) {
+                return;
+            }
+        }
+        subscriber.onSubscribe(upstream);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            if (downstream == null) {
+                return;
+            }
+        }
+        downstream.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(T item) {
+        R result;
+        try {
+            result = transform.apply(item);
+        } catch (RuntimeException e) {
+            upstream.cancel();
+            downstream.onError(e);
+            return;
+        }
+        downstream.onNext(result);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        downstream.onComplete();
+    }
+}
+
+// Consumer: asks for `batchSize` tasks up front and tops the demand up once half
+// of them are printed, so at most `batchSize` tasks are ever in flight for it
+class PrinterSubscriber implements Flow.Subscriber<PrintTask> {
+    private final int batchSize;
+    private final int refill;
+    private final PrintEventSink events;
+    private final CountDownLatch done;
+    private Flow.Subscription subscription;
+    private int printed = 0;
+
+    public PrinterSubscriber(int batchSize, PrintEventSink events, CountDownLatch done) {
+        this.batchSize = batchSize;
+        this.refill = Math.max(1, batchSize / 2);
+        this.events = events;
+        this.done = done;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(PrintTask task) {
+        events.onEvent(QueueEvent.CONSUMED, task);
+        try {
+            Thread.sleep(50); // Simulate processing the task
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscription.cancel();
+            done.countDown();
+            return;
+        }
+        task.release();
+        if (++printed == refill) {
+            printed = 0;
+            subscription.request(refill);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        throwable.printStackTrace();
+        done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+        done.countDown();
+    }
+}
+
+public class ProducerConsumerV3 {
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        PrintEventSink events = PrintEventSink.console();
+        UserPublisher user = new UserPublisher(executor, 20, events);
+
+        // One user (publisher), two printers (subscribers), each behind a
+        // spool -> render pipeline
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            PrintStage<PrintTask, PrintTask> spool = new PrintStage<>(
+                    task -> new PrintTask(task.getJobId(), "Spooled " + task.getDocument()));
+            PrintStage<PrintTask, PrintTask> render = new PrintStage<>(
+                    task -> new PrintTask(task.getJobId(), "Rendered " + task.getDocument()));
+            user.subscribe(spool);
+            spool.subscribe(render);
+            render.subscribe(new PrinterSubscriber(4, events, done));
+        }
+
+        System.out.println("Starting reactive print simulation...");
+        done.await();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,25 @@
+package producerconsumer;
+
+import java.util.List;
+
+/**
+ * The producer side of a print queue: all a `User` needs. Queues that can also
+ * be consumed from implement `PrintQueue`; `ShardedPrintQueue` only routes
+ * tasks, and is consumed shard by shard.
+ */
+interface ProducerQueue {
+    void produce(PrintTask task) throws InterruptedException;
+
+    /**
+     * Non-blocking `produce()`; returns `false` if the queue is full.
+     */
+    boolean offer(PrintTask task);
+
+    int size();
+
+    /**
+     * Produces every task in the list, in order, blocking while the queue is full.
+     * Implementations hand over as many tasks as fit per lock acquisition/wake-up.
+     */
+    void produceAll(List<PrintTask> tasks) throws InterruptedException;
+}
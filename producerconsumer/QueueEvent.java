@@ -0,0 +1,41 @@
+package producerconsumer;
+
+/**
+ * What producers, consumers and queues report to a `PrintEventSink`.
+ */
+enum QueueEvent {
+    PRODUCED("Produced: ", Detail.TASK),
+    CONSUMED("Consumed: ", Detail.TASK),
+    BATCH_PRODUCED("Produced batch of ", Detail.COUNT),
+    BATCH_CONSUMED("Consumed batch of ", Detail.COUNT),
+    QUEUE_FULL("The queue is full, producer is waiting...", Detail.NONE),
+    QUEUE_EMPTY("Queue is empty, consumer is waiting...", Detail.NONE);
+
+    private enum Detail {
+        TASK, COUNT, NONE
+    }
+
+    private final String message;
+    private final Detail detail;
+
+    QueueEvent(String message, Detail detail) {
+        this.message = message;
+        this.detail = detail;
+    }
+
+    /**
+     * Appends the human-readable line (without a line break). Allocates nothing
+     * once `line` has grown large enough.
+     */
+    public void appendTo(StringBuilder line, int jobId, CharSequence document, int count) {
+        line.append(message);
+        switch (detail) {
+            // Same format as `PrintTask.toString()`
+            case TASK -> line.append("PrintTask {jobId=").append(jobId)
+                    .append(", document=").append(document).append('}');
+            case COUNT -> line.append(count);
+            case NONE -> {
+            }
+        }
+    }
+}
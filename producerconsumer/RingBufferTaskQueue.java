@@ -0,0 +1,234 @@
+package producerconsumer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+// The producer and consumer cursors are written by different threads on every
+// operation. If they shared a cache line, each write would invalidate the other
+// side's copy (false sharing). Superclass fields are laid out before subclass
+// fields, so these layers put 7 longs (56 bytes) on either side of each cursor.
+abstract class RingBufferPad0 {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingBufferTail extends RingBufferPad0 {
+    // Next position a producer will claim
+    volatile long tail;
+}
+
+abstract class RingBufferPad1 extends RingBufferTail {
+    long p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingBufferHead extends RingBufferPad1 {
+    // Next position a consumer will claim
+    volatile long head;
+}
+
+abstract class RingBufferPad2 extends RingBufferHead {
+    long p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * A bounded, lock-free alternative to `TaskQueue`: a pre-allocated ring of slots,
+ * so producing and consuming allocate nothing, and no monitor, so producers and
+ * consumers never wake each other up with `notifyAll()`.
+ *
+ * Every slot carries a sequence number that says whose turn it is. A slot at
+ * position `p` is free for the producer of lap `p` when its sequence equals `p`,
+ * and holds a task for the consumer when its sequence equals `p + 1`. After
+ * consuming, the sequence jumps ahead to `p + capacity`, ie: the same slot one
+ * lap later. Claiming a position is a CAS on the cursor; the single-producer
+ * variant skips the CAS on the producer side since nobody else moves `tail`.
+ */
+class RingBufferTaskQueue extends RingBufferPad2 implements PrintQueue {
+    // Spin first (the other side is usually only nanoseconds away), then park
+    // briefly so an idle queue doesn't burn a core
+    private static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.timedPark(50, TimeUnit.MICROSECONDS);
+
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(RingBufferTail.class, "tail", long.class);
+            HEAD = lookup.findVarHandle(RingBufferHead.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final PrintTask[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final boolean singleProducer;
+    private final WaitStrategy waitStrategy;
+    private final BooleanSupplier notFull = () -> size() < capacity();
+    private final BooleanSupplier notEmpty = () -> size() > 0;
+
+    private RingBufferTaskQueue(int capacity, boolean singleProducer, WaitStrategy waitStrategy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        // A power of two turns `position % capacity` into `position & mask`
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new PrintTask[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.singleProducer = singleProducer;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * For exactly one producer thread (any number of consumers). Cheaper, but
+     * corrupts the queue if two threads produce concurrently.
+     */
+    public static RingBufferTaskQueue singleProducer(int capacity) {
+        return singleProducer(capacity, DEFAULT_WAIT_STRATEGY);
+    }
+
+    public static RingBufferTaskQueue singleProducer(int capacity, WaitStrategy waitStrategy) {
+        return new RingBufferTaskQueue(capacity, true, waitStrategy);
+    }
+
+    public static RingBufferTaskQueue multiProducer(int capacity) {
+        return multiProducer(capacity, DEFAULT_WAIT_STRATEGY);
+    }
+
+    public static RingBufferTaskQueue multiProducer(int capacity, WaitStrategy waitStrategy) {
+        return new RingBufferTaskQueue(capacity, false, waitStrategy);
+    }
+
+    @Override
+    public boolean offer(PrintTask task) {
+        long position = tail;
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                // The slot is free for this lap; claim it
+                if (singleProducer) {
+                    TAIL.setOpaque(this, position + 1);
+                    break;
+                }
+                if (TAIL.compareAndSet(this, position, position + 1)) {
+                    break;
+                }
+                position = tail;
+            } else if (difference < 0) {
+                // The slot still holds last lap's task: full
+                return false;
+            } else {
+                // Another producer claimed it first
+                position = tail;
+            }
+        }
+
+        int index = (int) position & mask;
+        slots[index] = task;
+        // Publishes the task; a consumer that sees the new sequence sees the task
+        sequences.setRelease(index, position + 1);
+        return true;
+    }
+
+    @Override
+    public PrintTask poll() {
+        long position = head;
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - (position + 1);
+            if (difference == 0) {
+                if (HEAD.compareAndSet(this, position, position + 1)) {
+                    break;
+                }
+                position = head;
+            } else if (difference < 0) {
+                // Not published yet: empty
+                return null;
+            } else {
+                position = head;
+            }
+        }
+
+        int index = (int) position & mask;
+        PrintTask task = slots[index];
+        slots[index] = null;
+        // Hands the slot to the producer of the next lap
+        sequences.setRelease(index, position + mask + 1);
+        return task;
+    }
+
+    @Override
+    public void produce(PrintTask task) throws InterruptedException {
+        while (!offer(task)) {
+            waitStrategy.await(this, notFull, Long.MAX_VALUE);
+        }
+        // A no-op unless consumers block on this queue's monitor
+        waitStrategy.signalAll(this);
+    }
+
+    @Override
+    public PrintTask consume() throws InterruptedException {
+        PrintTask task;
+        while ((task = poll()) == null) {
+            waitStrategy.await(this, notEmpty, Long.MAX_VALUE);
+        }
+        waitStrategy.signalAll(this);
+        return task;
+    }
+
+    // There is no lock to amortize here, so a batch is simply one CAS per task
+    @Override
+    public void produceAll(List<PrintTask> tasks) throws InterruptedException {
+        for (PrintTask task : tasks) {
+            produce(task);
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super PrintTask> buffer, int maxTasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        // The do/while below always takes the first task
+        if (maxTasks <= 0) {
+            return 0;
+        }
+
+        long remaining = unit.toNanos(timeout);
+        PrintTask task;
+        while ((task = poll()) == null) {
+            if (remaining <= 0) {
+                return 0;
+            }
+            remaining = waitStrategy.await(this, notEmpty, remaining);
+        }
+
+        int count = 0;
+        do {
+            buffer.add(task);
+            count++;
+        } while (count < maxTasks && (task = poll()) != null);
+        waitStrategy.signalAll(this);
+        return count;
+    }
+
+    @Override
+    public int size() {
+        // Read head first; reading tail first could yield a negative size
+        long currentHead = head;
+        return (int) Math.max(0, Math.min(tail - currentHead, slots.length));
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,102 @@
+package producerconsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * N independent queues instead of one shared one. Every task is routed by a key
+ * (the `jobId` by default) to one shard, and each shard is drained by exactly
+ * one consumer (`new Printer(queue.shard(i))`). Producers and consumers of
+ * different shards never touch the same lock or cursor, so throughput grows
+ * with the number of consumers instead of flattening out on one contention
+ * point.
+ *
+ * Tasks with the same key always land in the same shard and so are consumed in
+ * the order they were produced. The price is load balance: a busy key can't be
+ * helped by idle consumers of other shards.
+ *
+ * Only the producer side is shared: consumers take `shard(i)`, a full
+ * `PrintQueue`, so there is nothing to consume from the sharded queue itself.
+ */
+class ShardedPrintQueue implements ProducerQueue {
+    private final PrintQueue[] shards;
+    private final ToIntFunction<PrintTask> key;
+
+    public ShardedPrintQueue(int shardCount, IntFunction<PrintQueue> queueFactory) {
+        this(shardCount, queueFactory, PrintTask::getJobId);
+    }
+
+    /**
+     * @param queueFactory Creates the queue of shard `i`; it needs to support as
+     *                     many producers as there are, but only one consumer.
+     * @param key          Tasks with equal keys go to the same shard, eg: a
+     *                     printer or user id.
+     */
+    public ShardedPrintQueue(int shardCount, IntFunction<PrintQueue> queueFactory, ToIntFunction<PrintTask> key) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Invalid shard count: " + shardCount);
+        }
+        this.shards = new PrintQueue[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = queueFactory.apply(i);
+        }
+        this.key = key;
+    }
+
+    public PrintQueue shard(int index) {
+        return shards[index];
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public PrintQueue shardFor(PrintTask task) {
+        return shards[indexFor(task)];
+    }
+
+    @Override
+    public void produce(PrintTask task) throws InterruptedException {
+        shardFor(task).produce(task);
+    }
+
+    @Override
+    public boolean offer(PrintTask task) {
+        return shardFor(task).offer(task);
+    }
+
+    // Splits the batch per shard, keeping the order within each shard
+    @Override
+    public void produceAll(List<PrintTask> tasks) throws InterruptedException {
+        List<List<PrintTask>> batches = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (PrintTask task : tasks) {
+            batches.get(indexFor(task)).add(task);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (!batches.get(i).isEmpty()) {
+                shards[i].produceAll(batches.get(i));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (PrintQueue shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private int indexFor(PrintTask task) {
+        int hash = key.applyAsInt(task);
+        // Sequential keys (like job ids) would otherwise only vary in the low bits
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shards.length);
+    }
+}
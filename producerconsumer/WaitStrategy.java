@@ -0,0 +1,122 @@
+package producerconsumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a producer or consumer waits for the queue to become non-full/non-empty.
+ * It's a trade between CPU and handoff latency:
+ * - `blocking()`: parks on the queue's monitor until notified. No CPU while idle,
+ * but every handoff pays a context switch (tens of microseconds).
+ * - `timedPark(...)`: spins briefly, then parks for a fixed interval and re-checks.
+ * Little CPU while idle, latency bounded by the park interval.
+ * - `spinThenYield(...)`: spins, then yields the CPU to other threads in between
+ * checks. Low latency, burns a core while idle unless other threads need it.
+ * - `busySpin()`: never lets go of the CPU. Lowest latency (sub-microsecond), but
+ * burns a whole core per waiting thread; only with dedicated/pinned cores.
+ */
+interface WaitStrategy {
+    /**
+     * Waits until `ready` holds, the timeout elapses or the thread is interrupted.
+     * Returns the remaining nanos, <= 0 if timed out. Callers must re-check their
+     * condition afterwards; another thread may have won the race for it.
+     *
+     * @param monitor The object producers/consumers synchronize on; only used by
+     *                strategies that block.
+     * @param nanos   How long to wait at most; `Long.MAX_VALUE` waits forever.
+     */
+    long await(Object monitor, BooleanSupplier ready, long nanos) throws InterruptedException;
+
+    /**
+     * Called after every state change that could make someone's `ready` true.
+     */
+    default void signalAll(Object monitor) {
+    }
+
+    static WaitStrategy blocking() {
+        return Blocking.INSTANCE;
+    }
+
+    static WaitStrategy timedPark(long parkTime, TimeUnit unit) {
+        long parkNanos = unit.toNanos(parkTime);
+        return (Spinning) attempt -> {
+            if (attempt < Spinning.SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        };
+    }
+
+    static WaitStrategy spinThenYield(int spinTries) {
+        return (Spinning) attempt -> {
+            if (attempt < spinTries) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    static WaitStrategy busySpin() {
+        return (Spinning) attempt -> Thread.onSpinWait();
+    }
+
+    final class Blocking implements WaitStrategy {
+        private static final Blocking INSTANCE = new Blocking();
+
+        private Blocking() {
+        }
+
+        @Override
+        public long await(Object monitor, BooleanSupplier ready, long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            synchronized (monitor) {
+                while (!ready.getAsBoolean()) {
+                    if (nanos == Long.MAX_VALUE) {
+                        monitor.wait();
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return remaining;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                }
+            }
+            return nanos == Long.MAX_VALUE ? nanos : deadline - System.nanoTime();
+        }
+
+        @Override
+        public void signalAll(Object monitor) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    // Strategies that never park on the monitor and so never need a signal; they
+    // only differ in what they do between two checks
+    @FunctionalInterface
+    interface Spinning extends WaitStrategy {
+        int SPIN_TRIES = 100;
+
+        void idle(int attempt);
+
+        @Override
+        default long await(Object monitor, BooleanSupplier ready, long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            for (int attempt = 0; !ready.getAsBoolean(); attempt++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (nanos != Long.MAX_VALUE && deadline - System.nanoTime() <= 0) {
+                    return 0;
+                }
+                idle(attempt);
+            }
+            return nanos == Long.MAX_VALUE ? nanos : deadline - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package respository;
+
+/**
+ * A point-in-time snapshot of a `CachingUserRepository`'s metrics.
+ */
+public class CacheStats {
+    private final int size;
+    private final long hits;
+    private final long negativeHits;
+    private final long misses;
+    private final long evictions;
+
+    CacheStats(int size, long hits, long negativeHits, long misses, long evictions) {
+        this.size = size;
+        this.hits = hits;
+        this.negativeHits = negativeHits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    // Lookups answered by a cached "no such user"
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRate() {
+        long requests = hits + negativeHits + misses;
+        return requests == 0 ? 0 : (double) (hits + negativeHits) / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [size=" + size + ", hits=" + hits + ", negativeHits=" + negativeHits + ", misses="
+                + misses + ", evictions=" + evictions + ", hitRate=" + String.format("%.2f", getHitRate()) + "]";
+    }
+}
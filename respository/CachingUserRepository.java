@@ -0,0 +1,310 @@
+package respository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * A `UserRepository` decorator that keeps recently looked up users in memory,
+ * so repeated `findById` calls for popular users don't reach the backing
+ * repository (for JDBC, a database round trip each).
+ *
+ * - Size-bounded: least recently used entries are evicted first.
+ * - Entries expire after a TTL, so changes made behind the cache's back (eg: by
+ * another instance of the service) show up eventually.
+ * - Misses are cached too (with their own, usually shorter, TTL), so repeated
+ * lookups of an id that doesn't exist don't hit the backing repository either.
+ * A lookup the backing repository throws on caches nothing, so an outage isn't
+ * remembered as missing users.
+ * - `save` and `deleteById` write to the backing repository, then drop the
+ * cached entry; the next lookup reloads it.
+ *
+ * The cache is split into segments by id, each with its own lock, so threads
+ * looking up different users rarely contend. `maximumSize` is split between the
+ * segments and LRU order is kept per segment, so the cache never holds more
+ * than `maximumSize` users, but a segment full of hot ids evicts even while
+ * other segments have room.
+ */
+public class CachingUserRepository implements UserRepository {
+    // At most; fewer for a cache smaller than this, so no segment is empty
+    private static final int MAX_SEGMENTS = 16;
+
+    private final UserRepository delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private CachingUserRepository(Builder builder) {
+        if (builder.maximumSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum size: " + builder.maximumSize);
+        }
+        this.delegate = builder.delegate;
+        this.ttlNanos = builder.ttlNanos;
+        this.negativeTtlNanos = builder.negativeTtlNanos;
+        // A power of two, for masking
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(builder.maximumSize));
+        this.segments = new Segment[segmentCount];
+        // The remainder goes one by one to the first segments, so the sizes add
+        // up to exactly `maximumSize`
+        int segmentSize = builder.maximumSize / segmentCount;
+        int remainder = builder.maximumSize % segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(i < remainder ? segmentSize + 1 : segmentSize);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        Segment segment = segmentFor(id);
+        long generation;
+        synchronized (segment) {
+            Entry entry = liveEntry(segment, id, System.nanoTime());
+            if (entry != null) {
+                return Optional.ofNullable(hit(entry));
+            }
+            generation = segment.generation;
+        }
+
+        misses.increment();
+        Optional<User> user = delegate.findById(id);
+        cache(id, user.orElse(null), generation);
+        return user;
+    }
+
+    // Serves what it can from the cache and loads all the misses in one call
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        // Missed id -> generation of its segment before loading
+        Map<Long, Long> missed = new HashMap<>();
+        long now = System.nanoTime();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Segment segment = segmentFor(id);
+            synchronized (segment) {
+                Entry entry = liveEntry(segment, id, now);
+                if (entry == null) {
+                    missed.put(id, segment.generation);
+                    continue;
+                }
+                User user = hit(entry);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+        }
+        if (missed.isEmpty()) {
+            return users;
+        }
+
+        misses.add(missed.size());
+        Map<Long, User> loaded = new HashMap<>();
+        for (User user : delegate.findAllById(missed.keySet())) {
+            loaded.put(user.getId(), user);
+            users.add(user);
+        }
+        missed.forEach((id, generation) -> cache(id, loaded.get(id), generation));
+        return users;
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    // Bulk reads would only flush the cache of the users actually in demand
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void save(User user) {
+        delegate.save(user);
+        invalidate(user.getId());
+    }
+
+    @Override
+    public void saveAll(Collection<User> users) {
+        delegate.saveAll(users);
+        for (User user : users) {
+            invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void deleteById(long id) {
+        delegate.deleteById(id);
+        invalidate(id);
+    }
+
+    /**
+     * Drops the cached entry for `id`, eg: after it was changed by someone else.
+     */
+    public void invalidate(long id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            segment.remove(id);
+            segment.generation++;
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.generation++;
+            }
+        }
+    }
+
+    public CacheStats getStats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(size, hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum());
+    }
+
+    // Must hold the segment's lock
+    private static Entry liveEntry(Segment segment, long id, long now) {
+        Entry entry = segment.get(id);
+        return entry != null && now - entry.expiresAtNanos < 0 ? entry : null;
+    }
+
+    // Returns a copy of the cached user, or null for a cached miss
+    private User hit(Entry entry) {
+        if (entry.user == null) {
+            negativeHits.increment();
+            return null;
+        }
+        hits.increment();
+        return copyOf(entry.user);
+    }
+
+    // Caches `user` (null: no such user), unless the segment was written to since
+    // `generation` was read, ie: while loading, which may have made it stale
+    private void cache(long id, User user, long generation) {
+        long ttl = user == null ? negativeTtlNanos : ttlNanos;
+        if (ttl <= 0) {
+            return;
+        }
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            if (segment.generation == generation) {
+                segment.put(id, new Entry(user == null ? null : copyOf(user), System.nanoTime() + ttl));
+            }
+        }
+    }
+
+    private Segment segmentFor(long id) {
+        int hash = Long.hashCode(id);
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUsername(), user.getEmail());
+    }
+
+    // `user` is null for a cached miss
+    private static final class Entry {
+        final User user;
+        final long expiresAtNanos;
+
+        Entry(User user, long expiresAtNanos) {
+            this.user = user;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    // An access-ordered map is an LRU list: `get` moves the entry to the end, and
+    // the eldest entry is the least recently used one
+    private final class Segment extends LinkedHashMap<Long, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+        // Bumped on every invalidation, so loads that raced with a write are dropped
+        long generation;
+
+        Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static class Builder {
+        private final UserRepository delegate;
+        private int maximumSize = 10_000;
+        private long ttlNanos = TimeUnit.MINUTES.toNanos(5);
+        private long negativeTtlNanos = TimeUnit.SECONDS.toNanos(30);
+
+        public Builder(UserRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * A hard cap on cached entries (hits and misses alike), split evenly
+         * between the segments.
+         */
+        public Builder maximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder ttl(long time, TimeUnit unit) {
+            this.ttlNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * How long "no such user" is remembered; 0 disables negative caching.
+         */
+        public Builder negativeTtl(long time, TimeUnit unit) {
+            this.negativeTtlNanos = unit.toNanos(time);
+            return this;
+        }
+
+        public CachingUserRepository build() {
+            return new CachingUserRepository(this);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package respository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections, so a query doesn't pay a full
+ * connect/authenticate handshake. At most `maxSize` connections exist at once;
+ * `acquire()` waits up to the acquisition timeout for one to be returned.
+ *
+ * - Idle connections are reused most-recently-used first, so under light load
+ * the others stay idle long enough to be evicted.
+ * - A connection that has been idle longer than the validation interval is
+ * checked with `isValid()` before it's handed out; broken ones are replaced.
+ * - A background thread closes connections idle longer than the idle timeout,
+ * down to `minIdle`.
+ * - Each connection caches its prepared statements (see `PooledConnection`).
+ */
+class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final long acquireTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final int statementCacheSize;
+
+    // One permit per connection that may still be handed out
+    private final Semaphore permits;
+    // Most recently returned first
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong open = new AtomicLong();
+
+    private ConnectionPool(Builder builder) {
+        if (builder.maxSize < 1 || builder.minIdle < 0 || builder.minIdle > builder.maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min idle " + builder.minIdle + ", max "
+                    + builder.maxSize);
+        }
+        this.url = builder.url;
+        this.user = builder.user;
+        this.password = builder.password;
+        this.minIdle = builder.minIdle;
+        this.acquireTimeoutNanos = builder.acquireTimeoutNanos;
+        this.idleTimeoutNanos = builder.idleTimeoutNanos;
+        this.validationIntervalNanos = builder.validationIntervalNanos;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.permits = new Semaphore(builder.maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(100), idleTimeoutNanos / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns a connection; closing it hands it back to the pool. Throws a
+     * `SQLException` if none becomes available within the acquisition timeout,
+     * or a new one can't be opened.
+     */
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos)
+                        + "ms waiting for a connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            PooledConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (isUsable(connection)) {
+                    connection.checkOut();
+                    acquired.increment();
+                    return connection;
+                }
+                validationFailures.increment();
+                discard(connection);
+            }
+            connection = open();
+            acquired.increment();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Called by `PooledConnection.close()`
+    void release(PooledConnection connection) {
+        try {
+            if (closed || connection.isBroken()) {
+                discard(connection);
+            } else {
+                connection.reset();
+                idle.offerFirst(connection);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public ConnectionPoolStats getStats() {
+        return new ConnectionPoolStats(open.get(), idle.size(), acquired.sum(), timeouts.sum(), created.sum(),
+                evicted.sum(), validationFailures.sum(), waitNanos.sum(), maxWaitNanos.get());
+    }
+
+    /**
+     * Closes every idle connection; connections still in use are closed when
+     * they're returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        created.increment();
+        open.incrementAndGet();
+        return new PooledConnection(connection, this, statementCacheSize);
+    }
+
+    // A connection that was used a moment ago is almost certainly fine; only
+    // pay for the `isValid()` round trip after it sat idle for a while
+    private boolean isUsable(PooledConnection connection) {
+        if (System.nanoTime() - connection.lastUsedNanos() < validationIntervalNanos) {
+            return true;
+        }
+        try {
+            return connection.connection().isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Oldest idle connections sit at the end of the deque
+    private void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && idle.size() > minIdle) {
+            PooledConnection connection = oldestFirst.next();
+            if (now - connection.lastUsedNanos() < idleTimeoutNanos) {
+                break;
+            }
+            // May have been acquired in the meantime
+            if (idle.removeLastOccurrence(connection)) {
+                evicted.increment();
+                discard(connection);
+            }
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        open.decrementAndGet();
+        connection.closePhysically();
+    }
+
+    public static class Builder {
+        private final String url;
+        private final String user;
+        private final String password;
+        private int maxSize = 10;
+        private int minIdle = 0;
+        private long acquireTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+        private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+        private long validationIntervalNanos = TimeUnit.SECONDS.toNanos(5);
+        private int statementCacheSize = 32;
+
+        public Builder(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * How many idle connections eviction keeps around.
+         */
+        public Builder minIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Builder acquireTimeout(long time, TimeUnit unit) {
+            this.acquireTimeoutNanos = unit.toNanos(time);
+            return this;
+        }
+
+        public Builder idleTimeout(long time, TimeUnit unit) {
+            this.idleTimeoutNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Connections idle for longer than this are validated before reuse.
+         */
+        public Builder validationInterval(long time, TimeUnit unit) {
+            this.validationIntervalNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Prepared statements cached per connection; 0 disables the cache.
+         */
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            return new ConnectionPool(this);
+        }
+    }
+}
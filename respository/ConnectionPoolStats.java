@@ -0,0 +1,77 @@
+package respository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time snapshot of a connection pool's metrics.
+ */
+class ConnectionPoolStats {
+    private final long openConnections;
+    private final int idleConnections;
+    private final long acquired;
+    private final long acquireTimeouts;
+    private final long created;
+    private final long evicted;
+    private final long validationFailures;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    ConnectionPoolStats(long openConnections, int idleConnections, long acquired, long acquireTimeouts,
+            long created, long evicted, long validationFailures, long totalWaitNanos, long maxWaitNanos) {
+        this.openConnections = openConnections;
+        this.idleConnections = idleConnections;
+        this.acquired = acquired;
+        this.acquireTimeouts = acquireTimeouts;
+        this.created = created;
+        this.evicted = evicted;
+        this.validationFailures = validationFailures;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public long getOpenConnections() {
+        return openConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    // Includes the waits that timed out
+    public long getAverageWaitMicros() {
+        long attempts = acquired + acquireTimeouts;
+        return attempts == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos / attempts);
+    }
+
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolStats [open=" + openConnections + ", idle=" + idleConnections + ", acquired="
+                + acquired + ", timeouts=" + acquireTimeouts + ", created=" + created + ", evicted=" + evicted
+                + ", validationFailures=" + validationFailures + ", wait(us) avg/max=" + getAverageWaitMicros()
+                + "/" + getMaxWaitMicros() + "]";
+    }
+}
@@ -0,0 +1,14 @@
+package respository;
+
+/**
+ * Thrown when a write breaks a constraint of the backing store (SQLState class
+ * 23: unique, not null, foreign key, ...). Unlike other `DataAccessException`s
+ * it isn't transient: the same write fails the same way every time.
+ */
+public class ConstraintViolationException extends DataAccessException {
+    private static final long serialVersionUID = 1L;
+
+    public ConstraintViolationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package respository;
+
+/**
+ * Thrown when the backing store fails to read or apply a write, eg: the
+ * `SQLException` behind a failed `save` or `findById`. Unchecked, like the rest
+ * of the `UserRepository` API, but unlike a swallowed error it tells the caller
+ * the write didn't happen, or that an empty result isn't really empty.
+ */
+public class DataAccessException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
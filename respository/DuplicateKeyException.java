@@ -0,0 +1,13 @@
+package respository;
+
+/**
+ * Thrown when a write breaks a unique constraint, eg: saving a username that's
+ * already taken in the JDBC repository, where the username index is unique.
+ */
+public class DuplicateKeyException extends ConstraintViolationException {
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateKeyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
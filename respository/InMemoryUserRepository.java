@@ -1,39 +1,207 @@
 package respository;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * Thread-safe: `findById` never locks, and writes only lock the map bin of
+ * their own id, so both scale with the number of threads. `User` is mutable, so
+ * the store keeps its own copies and hands out copies; a caller changing a user
+ * after saving it can't corrupt (or race with) what other threads read.
+ *
+ * Usernames and emails are indexed (hash maps to the id), so looking a user up
+ * by either is as cheap as by id. They are expected to be unique; if two users
+ * share one, the index points to whichever was saved last. A sorted set of ids
+ * serves the in-order `streamAll` and `findPage`.
+ */
 public class InMemoryUserRepository implements UserRepository {
-    private final Map<Long, User> userStore = new HashMap<>();
+    private final ConcurrentMap<Long, User> userStore = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> usernameIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> emailIndex = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
     private final AtomicLong sequence = new AtomicLong(0);
+    // Used "inverted": writers share the read lock, so they don't block each
+    // other, while `findAll` takes the write lock to copy the store with no write
+    // half-way through. That's a consistent snapshot, where iterating a
+    // `ConcurrentHashMap` alone could mix states from before and after a write.
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Lock writeLock = snapshotLock.readLock();
+    private final Lock snapshotReadLock = snapshotLock.writeLock();
 
     @Override
     public Optional<User> findById(long id) {
-        return Optional.ofNullable(userStore.get(id));
+        return Optional.ofNullable(userStore.get(id)).map(InMemoryUserRepository::copyOf);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : new HashSet<>(ids)) {
+            User user = userStore.get(id);
+            if (user != null) {
+                users.add(copyOf(user));
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return findByIndex(usernameIndex, username, User::getUsername);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findByIndex(emailIndex, email, User::getEmail);
     }
 
     @Override
     public List<User> findAll() {
-        return new ArrayList<>(userStore.values());
+        List<User> users;
+        snapshotReadLock.lock();
+        try {
+            users = new ArrayList<>(userStore.values());
+        } finally {
+            snapshotReadLock.unlock();
+        }
+        // Stored users are never modified, so copying them can happen unlocked
+        users.replaceAll(InMemoryUserRepository::copyOf);
+        return users;
+    }
+
+    // Weakly consistent: reflects some, but not necessarily all, concurrent writes
+    @Override
+    public Stream<User> streamAll() {
+        return ids.stream()
+                .map(userStore::get)
+                .filter(Objects::nonNull)
+                .map(InMemoryUserRepository::copyOf);
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Long id : ids.tailSet(afterId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            // May have been deleted in the meantime
+            User user = userStore.get(id);
+            if (user != null) {
+                page.add(copyOf(user));
+            }
+        }
+        return page;
     }
 
     @Override
     public void save(User user) {
-        if (user.getId() == 0) {
-            long newId = sequence.incrementAndGet();
-            user.setId(newId);
+        writeLock.lock();
+        try {
+            store(user);
+        } finally {
+            writeLock.unlock();
         }
-        userStore.put(user.getId(), user);
         System.out.println("Saved user to in-memory store: " + user);
     }
 
+    @Override
+    public void saveAll(Collection<User> users) {
+        writeLock.lock();
+        try {
+            for (User user : users) {
+                store(user);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        System.out.println("Saved " + users.size() + " users to in-memory store.");
+    }
+
     @Override
     public void deleteById(long id) {
-        userStore.remove(id);
+        writeLock.lock();
+        try {
+            userStore.computeIfPresent(id, (key, previous) -> {
+                unindex(previous);
+                ids.remove(key);
+                return null;
+            });
+        } finally {
+            writeLock.unlock();
+        }
         System.out.println("Deleted user with id " + id + " from in-memory store.");
     }
+
+    private void store(User user) {
+        if (user.getId() == 0) {
+            long newId = sequence.incrementAndGet();
+            user.setId(newId);
+        }
+        User stored = copyOf(user);
+        // Holds the id's bin lock, so the indexes change atomically with the user
+        userStore.compute(user.getId(), (id, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(stored);
+            ids.add(id);
+            return stored;
+        });
+    }
+
+    private Optional<User> findByIndex(ConcurrentMap<String, Long> index, String key,
+            Function<User, String> attribute) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        Long id = index.get(key);
+        if (id == null) {
+            return Optional.empty();
+        }
+        // The user may have changed between the two lookups
+        return Optional.ofNullable(userStore.get(id))
+                .filter(user -> key.equals(attribute.apply(user)))
+                .map(InMemoryUserRepository::copyOf);
+    }
+
+    private void index(User user) {
+        if (user.getUsername() != null) {
+            usernameIndex.put(user.getUsername(), user.getId());
+        }
+        if (user.getEmail() != null) {
+            emailIndex.put(user.getEmail(), user.getId());
+        }
+    }
+
+    // Only removes entries that still point to this user
+    private void unindex(User user) {
+        if (user.getUsername() != null) {
+            usernameIndex.remove(user.getUsername(), user.getId());
+        }
+        if (user.getEmail() != null) {
+            emailIndex.remove(user.getEmail(), user.getId());
+        }
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUsername(), user.getEmail());
+    }
 }
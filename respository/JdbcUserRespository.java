@@ -1,75 +1,526 @@
 package respository;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-class JdbcUserRepository implements UserRepository {
-    private final String url;
-    private final String dbUser;
-    private final String dbPassword;
+class JdbcUserRepository implements UserRepository, AutoCloseable {
+    // Rows per `executeBatch()`; bounds what the driver buffers client-side
+    private static final int BATCH_SIZE = 1000;
+    // Rows the driver fetches per round trip while streaming, instead of
+    // (depending on the driver) the whole result set at once
+    private static final int STREAM_FETCH_SIZE = 500;
+    // `IN` lists are padded (by repeating an id) up to one of these sizes, so a
+    // handful of distinct statements cover every lookup and stay in the
+    // statement cache. The largest is also the chunk size.
+    private static final int[] IN_LIST_SIZES = { 1, 4, 16, 64, 256, 1000 };
+    private static final String[] FIND_ALL_BY_ID_SQL = new String[IN_LIST_SIZES.length];
+
+    static {
+        for (int i = 0; i < IN_LIST_SIZES.length; i++) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE id IN (?");
+            for (int j = 1; j < IN_LIST_SIZES[i]; j++) {
+                sql.append(", ?");
+            }
+            FIND_ALL_BY_ID_SQL[i] = sql.append(')').toString();
+        }
+    }
+
+    // Connections are pooled, and each caches its prepared statements, so a
+    // lookup is one round trip instead of connect + authenticate + prepare + query
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
 
     public JdbcUserRepository(String url, String user, String password) {
-        this.url = url;
-        this.dbUser = user;
-        this.dbPassword = password;
-        // In a real app, you would initialize the database table here if it doesn't
-        // exist.
+        this(new ConnectionPool.Builder(url, user, password).build());
+    }
+
+    // The dialect is detected from the JDBC URL
+    public JdbcUserRepository(ConnectionPool pool) {
+        this(pool, SqlDialect.fromUrl(pool.getUrl()));
+    }
+
+    public JdbcUserRepository(ConnectionPool pool, SqlDialect dialect) {
+        this.pool = pool;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Creates the users table and the indexes behind `findByUsername` and
+     * `findByEmail`, unless they already exist. Without the indexes both lookups
+     * are full table scans.
+     */
+    public void createSchema() {
+        try (PooledConnection conn = getConnection()) {
+            try (Statement stmt = conn.connection().createStatement()) {
+                for (String sql : dialect.createSchemaSql()) {
+                    stmt.execute(sql);
+                }
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, dbUser, dbPassword);
+    private PooledConnection getConnection() throws SQLException {
+        return pool.acquire();
+    }
+
+    // A connection-level failure (SQLState class 08: link down, server gone, ...)
+    // may have left the connection unusable, so it's discarded instead of going
+    // back to the pool. Call it before the connection is closed.
+    private static void markBrokenIfLost(PooledConnection conn, SQLException e) {
+        String state = e.getSQLState();
+        if (e instanceof SQLNonTransientConnectionException || e instanceof SQLRecoverableException
+                || (state != null && state.startsWith("08"))) {
+            conn.markBroken();
+        }
+    }
+
+    public ConnectionPoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
     }
 
     @Override
     public Optional<User> findById(long id) {
         // Implementation for finding a user via JDBC
-        // try-with-resources ensures the connection is closed
-        try (Connection conn = getConnection();
-                PreparedStatement ps = conn.prepareStatement("SELECT * FROM users WHERE id = ?")) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return Optional.of(new User(rs.getLong("id"), rs.getString("username"), rs.getString("email")));
+        // try-with-resources ensures the connection goes back to the pool; the
+        // statement stays cached on the connection
+        try (PooledConnection conn = getConnection()) {
+            try {
+                PreparedStatement ps = conn.prepare("SELECT * FROM users WHERE id = ?");
+                ps.setLong(1, id);
+                return findOne(ps);
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
             }
         } catch (SQLException e) {
-            e.printStackTrace(); // Proper logging should be used here
+            // Not `Optional.empty()`: a failed lookup isn't a missing user
+            throw new DataAccessException("Failed to find user with id " + id, e);
+        }
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        Collection<Long> distinct = new LinkedHashSet<>(ids);
+        Iterator<Long> remaining = distinct.iterator();
+        int left = distinct.size();
+        try (PooledConnection conn = getConnection()) {
+            try {
+                while (left > 0) {
+                    int chunk = Math.min(left, IN_LIST_SIZES[IN_LIST_SIZES.length - 1]);
+                    int bucket = 0;
+                    while (IN_LIST_SIZES[bucket] < chunk) {
+                        bucket++;
+                    }
+
+                    PreparedStatement ps = conn.prepare(FIND_ALL_BY_ID_SQL[bucket]);
+                    long id = 0;
+                    for (int i = 1; i <= IN_LIST_SIZES[bucket]; i++) {
+                        if (i <= chunk) {
+                            id = remaining.next();
+                        }
+                        ps.setLong(i, id);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            users.add(mapRow(rs));
+                        }
+                    }
+                    left -= chunk;
+                }
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to find " + distinct.size() + " users by id", e);
+        }
+        return users;
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return findBy("SELECT * FROM users WHERE username = ?", username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findBy("SELECT * FROM users WHERE email = ?", email);
+    }
+
+    // Served by the indexes created in `createSchema()`
+    private Optional<User> findBy(String sql, String value) {
+        try (PooledConnection conn = getConnection()) {
+            try {
+                PreparedStatement ps = conn.prepare(sql);
+                ps.setString(1, value);
+                return findOne(ps);
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to find user by '" + value + "'", e);
+        }
+    }
+
+    private static Optional<User> findOne(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                return Optional.of(mapRow(rs));
+            }
         }
         return Optional.empty();
     }
 
+    private static User mapRow(ResultSet rs) throws SQLException {
+        return new User(rs.getLong("id"), rs.getString("username"), rs.getString("email"));
+    }
+
     @Override
     public List<User> findAll() {
         List<User> users = new ArrayList<>();
-        try (Connection conn = getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery("SELECT * FROM users")) {
-            while (rs.next()) {
-                users.add(new User(rs.getLong("id"), rs.getString("username"), rs.getString("email")));
+        try (PooledConnection conn = getConnection()) {
+            try (ResultSet rs = conn.prepare("SELECT * FROM users").executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapRow(rs));
+                }
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DataAccessException("Failed to find all users", e);
         }
         return users;
     }
 
+    /**
+     * Streams rows straight from a database cursor, `STREAM_FETCH_SIZE` at a time.
+     * The stream keeps a pooled connection until it's closed. Postgres only uses
+     * a cursor outside of auto-commit, which is why it's switched off here; MySQL
+     * additionally needs `useCursorFetch=true` in the URL.
+     */
+    @Override
+    public Stream<User> streamAll() {
+        PooledConnection conn = null;
+        try {
+            conn = getConnection();
+            conn.connection().setAutoCommit(false);
+            // Not from the statement cache: the fetch size would stick to it
+            PreparedStatement ps = conn.connection().prepareStatement("SELECT * FROM users ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ResultSet rs = ps.executeQuery();
+            PooledConnection borrowed = conn;
+            return StreamSupport.stream(new ResultSetSpliterator(rs), false)
+                    .onClose(() -> {
+                        try {
+                            rs.close();
+                            ps.close();
+                        } catch (SQLException e) {
+                            e.printStackTrace();
+                        } finally {
+                            // Rolls back the read-only transaction and returns the connection
+                            borrowed.close();
+                        }
+                    });
+        } catch (SQLException e) {
+            if (conn != null) {
+                markBrokenIfLost(conn, e);
+                conn.close();
+            }
+            throw new DataAccessException("Failed to stream users", e);
+        }
+    }
+
+    private static class ResultSetSpliterator extends Spliterators.AbstractSpliterator<User> {
+        private final ResultSet rs;
+
+        ResultSetSpliterator(ResultSet rs) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super User> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(mapRow(rs));
+                return true;
+            } catch (SQLException e) {
+                throw new DataAccessException("Failed to read the next user", e);
+            }
+        }
+    }
+
+    // Seeks to `afterId` through the primary key index, however deep the page is
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        try (PooledConnection conn = getConnection()) {
+            try {
+                PreparedStatement ps = conn.prepare("SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?");
+                ps.setLong(1, afterId);
+                ps.setInt(2, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(mapRow(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Failed to find the page after id " + afterId, e);
+        }
+        return page;
+    }
+
+    /**
+     * A new user (id 0) is inserted and gets the generated id; any other is
+     * written with the dialect's upsert, one statement with no select-then-write
+     * race. Without an upsert it's an update, then an insert if no row matched.
+     *
+     * H2 and Postgres don't advance the identity sequence for explicit ids, so
+     * there only save ids the database generated, or later inserts will collide
+     * (see `SqlDialect`).
+     */
     @Override
     public void save(User user) {
-        // Implementation for saving a user via JDBC (handling both INSERT and UPDATE)
-        // ...
+        try (PooledConnection conn = getConnection()) {
+            try {
+                if (user.getId() == 0) {
+                    PreparedStatement ps = conn.prepareReturningKeys("INSERT INTO users (username, email) VALUES (?, ?)");
+                    ps.setString(1, user.getUsername());
+                    ps.setString(2, user.getEmail());
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("No generated key returned for " + user);
+                        }
+                        user.setId(keys.getLong(1));
+                    }
+                } else if (dialect.supportsUpsert()) {
+                    PreparedStatement ps = conn.prepare(dialect.upsertSql());
+                    setUpsertParameters(ps, user);
+                    ps.executeUpdate();
+                } else {
+                    PreparedStatement update = conn.prepare("UPDATE users SET username = ?, email = ? WHERE id = ?");
+                    update.setString(1, user.getUsername());
+                    update.setString(2, user.getEmail());
+                    update.setLong(3, user.getId());
+                    if (update.executeUpdate() == 0) {
+                        PreparedStatement insert = conn.prepare("INSERT INTO users (id, username, email) VALUES (?, ?, ?)");
+                        setUpsertParameters(insert, user);
+                        insert.executeUpdate();
+                    }
+                }
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw writeFailed("Failed to save " + user, e);
+        }
         System.out.println("Saved user to database (JDBC): " + user);
     }
 
+    /**
+     * Inserts new users (id 0) and upserts existing ones in JDBC batches of
+     * `BATCH_SIZE` rows, all in one transaction. New users get their generated ids
+     * once it commits; after a rollback they keep id 0.
+     */
+    @Override
+    public void saveAll(Collection<User> users) {
+        List<User> inserts = new ArrayList<>();
+        List<User> updates = new ArrayList<>();
+        for (User user : users) {
+            (user.getId() == 0 ? inserts : updates).add(user);
+        }
+
+        try (PooledConnection conn = getConnection()) {
+            conn.connection().setAutoCommit(false);
+            try {
+                long[] generatedIds = insertBatch(conn, inserts);
+                if (dialect.supportsUpsert()) {
+                    upsertBatch(conn, updates);
+                } else {
+                    List<User> missing = updateBatch(conn, updates);
+                    // Users with an id that isn't in the table yet
+                    insertWithIdBatch(conn, missing);
+                }
+                conn.connection().commit();
+                for (int i = 0; i < generatedIds.length; i++) {
+                    inserts.get(i).setId(generatedIds[i]);
+                }
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                conn.connection().rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw writeFailed("Failed to save " + users.size() + " users", e);
+        }
+        System.out.println("Saved " + users.size() + " users to database (JDBC).");
+    }
+
+    // Returns the generated ids, in the order of `users`; they're only valid once
+    // the transaction commits
+    private static long[] insertBatch(PooledConnection conn, List<User> users) throws SQLException {
+        long[] ids = new long[users.size()];
+        if (users.isEmpty()) {
+            return ids;
+        }
+        try (PreparedStatement ps = conn.connection().prepareStatement(
+                "INSERT INTO users (username, email) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+                List<User> batch = users.subList(from, Math.min(from + BATCH_SIZE, users.size()));
+                for (User user : batch) {
+                    ps.setString(1, user.getUsername());
+                    ps.setString(2, user.getEmail());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = from; i < from + batch.size(); i++) {
+                        if (!keys.next()) {
+                            throw new SQLException("Driver returned fewer generated keys than rows");
+                        }
+                        ids[i] = keys.getLong(1);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void upsertBatch(PooledConnection conn, List<User> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.connection().prepareStatement(dialect.upsertSql())) {
+            for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+                for (User user : users.subList(from, Math.min(from + BATCH_SIZE, users.size()))) {
+                    setUpsertParameters(ps, user);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    // Returns the users that had no row to update
+    private static List<User> updateBatch(PooledConnection conn, List<User> users) throws SQLException {
+        List<User> missing = new ArrayList<>();
+        if (users.isEmpty()) {
+            return missing;
+        }
+        try (PreparedStatement ps = conn.connection().prepareStatement(
+                "UPDATE users SET username = ?, email = ? WHERE id = ?")) {
+            for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+                List<User> batch = users.subList(from, Math.min(from + BATCH_SIZE, users.size()));
+                for (User user : batch) {
+                    ps.setString(1, user.getUsername());
+                    ps.setString(2, user.getEmail());
+                    ps.setLong(3, user.getId());
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // Drivers may answer SUCCESS_NO_INFO instead of a count; only 0 means no row
+                    if (counts[i] == 0) {
+                        missing.add(batch.get(i));
+                    }
+                }
+            }
+        }
+        return missing;
+    }
+
+    private static void insertWithIdBatch(PooledConnection conn, List<User> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.connection().prepareStatement(
+                "INSERT INTO users (id, username, email) VALUES (?, ?, ?)")) {
+            for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+                for (User user : users.subList(from, Math.min(from + BATCH_SIZE, users.size()))) {
+                    setUpsertParameters(ps, user);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
     @Override
     public void deleteById(long id) {
-        // Implementation for deleting a user via JDBC
-        // ...
+        try (PooledConnection conn = getConnection()) {
+            try {
+                PreparedStatement ps = conn.prepare("DELETE FROM users WHERE id = ?");
+                ps.setLong(1, id);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                markBrokenIfLost(conn, e);
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw writeFailed("Failed to delete user with id " + id, e);
+        }
         System.out.println("Deleted user with id " + id + " from database (JDBC).");
     }
+
+    // 23505 is the standard unique violation (H2, Postgres); MySQL reports 23000
+    // with error 1062 (duplicate entry). The rest of class 23 are other
+    // constraint violations.
+    private static DataAccessException writeFailed(String message, SQLException e) {
+        String state = e.getSQLState();
+        if ("23505".equals(state) || ("23000".equals(state) && e.getErrorCode() == 1062)) {
+            return new DuplicateKeyException(message, e);
+        }
+        if (state != null && state.startsWith("23")) {
+            return new ConstraintViolationException(message, e);
+        }
+        return new DataAccessException(message, e);
+    }
+
+    // Parameters in the order of the upsert, and of an insert with an explicit id
+    private static void setUpsertParameters(PreparedStatement ps, User user) throws SQLException {
+        ps.setLong(1, user.getId());
+        ps.setString(2, user.getUsername());
+        ps.setString(3, user.getEmail());
+    }
 }
\ No newline at end of file
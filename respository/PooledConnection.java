@@ -0,0 +1,163 @@
+package respository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A connection borrowed from a `ConnectionPool`; `close()` returns it to the
+ * pool instead of closing it. Use it from one thread at a time.
+ *
+ * `prepare()` keeps up to `statementCacheSize` prepared statements per
+ * connection (least recently used ones are closed first), so a repeated query
+ * is parsed and planned once per connection rather than once per call.
+ * Statements from `prepare()` belong to the connection: don't close them, just
+ * close their result sets.
+ */
+class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final ConnectionPool pool;
+    private final int statementCacheSize;
+    // LRU order: least recently used first
+    private final Map<String, PreparedStatement> statements;
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+    // Read by the pool's evictor thread
+    private volatile long lastUsedNanos = System.nanoTime();
+    private boolean broken;
+    // Set by `close()`, so closing twice returns the connection once
+    private boolean returned;
+
+    PooledConnection(Connection connection, ConnectionPool pool, int statementCacheSize) {
+        this.connection = connection;
+        this.pool = pool;
+        this.statementCacheSize = statementCacheSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached statement for `sql`, with its parameters cleared, or
+     * prepares (and caches) a new one. With the cache disabled, statements are
+     * closed when the connection goes back to the pool.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null) {
+            statement.clearParameters();
+            return statement;
+        }
+
+        return cache(sql, connection.prepareStatement(sql));
+    }
+
+    /**
+     * Like `prepare(sql)`, for an insert whose generated keys are read back with
+     * `getGeneratedKeys()`.
+     */
+    public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+        // Same SQL, different statement: keep them apart in the cache
+        String key = "RETURNING KEYS " + sql;
+        PreparedStatement statement = statements.get(key);
+        if (statement != null) {
+            statement.clearParameters();
+            return statement;
+        }
+        return cache(key, connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS));
+    }
+
+    /**
+     * The underlying connection, for anything `prepare()` doesn't cover. Don't
+     * close it.
+     */
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Keeps the connection from going back to the pool, eg: after an error that
+     * may have left it unusable.
+     */
+    public void markBroken() {
+        broken = true;
+    }
+
+    /**
+     * Returns the connection to the pool. Closing it again is a no-op.
+     */
+    @Override
+    public void close() {
+        if (returned) {
+            return;
+        }
+        returned = true;
+        lastUsedNanos = System.nanoTime();
+        pool.release(this);
+    }
+
+    private PreparedStatement cache(String key, PreparedStatement statement) {
+        if (statementCacheSize == 0) {
+            uncached.add(statement);
+            return statement;
+        }
+        statements.put(key, statement);
+        if (statements.size() > statementCacheSize) {
+            Map.Entry<String, PreparedStatement> eldest = statements.entrySet().iterator().next();
+            statements.remove(eldest.getKey());
+            closeQuietly(eldest.getValue());
+        }
+        return statement;
+    }
+
+    // Called by the pool when it hands out an idle connection again
+    void checkOut() {
+        returned = false;
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    boolean isBroken() throws SQLException {
+        return broken || connection.isClosed();
+    }
+
+    // Undoes whatever the borrower changed, so the next one gets a clean connection
+    void reset() throws SQLException {
+        for (PreparedStatement statement : uncached) {
+            closeQuietly(statement);
+        }
+        uncached.clear();
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    void closePhysically() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        for (PreparedStatement statement : uncached) {
+            closeQuietly(statement);
+        }
+        uncached.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already gone
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Nothing left to do with it
+        }
+    }
+}
@@ -15,11 +15,17 @@ public class RepositoryAppDemo {
 
         System.out.println("All users: " + memoryUserService.getAllUsers());
         System.out.println("Found user 1: " + memoryUserService.findUser(1));
+        try {
+            memoryUserService.registerNewUser("alice", "alice2@example.com");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
 
         System.out.println("\n--- Using JDBC Repository (for production) ---");
         // To run this, you'd need a database like H2 and its driver in your classpath.
-        // UserRepository jdbcRepo = new JdbcUserRepository("jdbc:h2:mem:testdb", "sa",
+        // JdbcUserRepository jdbcRepo = new JdbcUserRepository("jdbc:h2:mem:testdb", "sa",
         // "");
+        // jdbcRepo.createSchema();
         // UserService prodUserService = new UserService(jdbcRepo);
         // prodUserService.registerNewUser("charlie", "charlie@example.com");
         // System.out.println("All users from DB: " + prodUserService.getAllUsers());
@@ -0,0 +1,81 @@
+package respository;
+
+import java.util.List;
+
+/**
+ * The SQL that differs between databases. Upserts ("insert, or update if the id
+ * exists") are a single statement everywhere, but each database spells it
+ * differently; `GENERIC` has none and falls back to update-then-insert.
+ *
+ * An identity column (H2, PostgreSQL, `GENERIC`) doesn't advance its sequence
+ * when a row is inserted with an explicit id, so later generated ids collide
+ * with it; only save ids the database generated. MySQL's `AUTO_INCREMENT` moves
+ * past explicit ids.
+ */
+enum SqlDialect {
+    H2("MERGE INTO users (id, username, email) KEY (id) VALUES (?, ?, ?)",
+            "BIGINT GENERATED BY DEFAULT AS IDENTITY", false),
+    POSTGRES("INSERT INTO users (id, username, email) VALUES (?, ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET username = EXCLUDED.username, email = EXCLUDED.email",
+            "BIGINT GENERATED BY DEFAULT AS IDENTITY", false),
+    // No `CREATE INDEX IF NOT EXISTS`, so the indexes are part of the table
+    MYSQL("INSERT INTO users (id, username, email) VALUES (?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE username = VALUES(username), email = VALUES(email)",
+            "BIGINT AUTO_INCREMENT", true),
+    GENERIC(null, "BIGINT GENERATED BY DEFAULT AS IDENTITY", false);
+
+    private final String upsertSql;
+    private final String idColumnType;
+    private final boolean indexesInTable;
+
+    SqlDialect(String upsertSql, String idColumnType, boolean indexesInTable) {
+        this.upsertSql = upsertSql;
+        this.idColumnType = idColumnType;
+        this.indexesInTable = indexesInTable;
+    }
+
+    public static SqlDialect fromUrl(String url) {
+        if (url.startsWith("jdbc:h2:")) {
+            return H2;
+        }
+        if (url.startsWith("jdbc:postgresql:")) {
+            return POSTGRES;
+        }
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return MYSQL;
+        }
+        return GENERIC;
+    }
+
+    public boolean supportsUpsert() {
+        return upsertSql != null;
+    }
+
+    /**
+     * Parameters: id, username, email.
+     */
+    public String upsertSql() {
+        if (upsertSql == null) {
+            throw new UnsupportedOperationException("No upsert in the " + this + " dialect");
+        }
+        return upsertSql;
+    }
+
+    /**
+     * The statements that create the users table and the indexes behind
+     * `findByUsername` and `findByEmail`, unless they already exist.
+     */
+    public List<String> createSchemaSql() {
+        String columns = "id " + idColumnType + " PRIMARY KEY, "
+                + "username VARCHAR(255) NOT NULL, "
+                + "email VARCHAR(255) NOT NULL";
+        if (indexesInTable) {
+            return List.of("CREATE TABLE IF NOT EXISTS users (" + columns + ", "
+                    + "UNIQUE KEY users_username_idx (username), "
+                    + "KEY users_email_idx (email))");
+        }
+        return List.of("CREATE TABLE IF NOT EXISTS users (" + columns + ")",
+                "CREATE UNIQUE INDEX IF NOT EXISTS users_username_idx ON users (username)",
+                "CREATE INDEX IF NOT EXISTS users_email_idx ON users (email)");
+    }
+}
@@ -1,7 +1,9 @@
 package respository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository {
     /**
@@ -9,28 +11,91 @@ public interface UserRepository {
      * 
      * @param id The ID of the user.
      * @return An Optional containing the user if found, otherwise empty.
+     * @throws DataAccessException If the backing store can't be read.
      */
     Optional<User> findById(long id);
 
+    /**
+     * Finds all users with the given IDs in as few round trips as possible.
+     * 
+     * @param ids The IDs of the users.
+     * @return The users found, in no particular order; IDs without a user are
+     *         skipped.
+     * @throws DataAccessException If the backing store can't be read.
+     */
+    List<User> findAllById(Collection<Long> ids);
+
+    /**
+     * Finds a user by their username, without scanning every user.
+     * 
+     * @param username The username to look for.
+     * @return An Optional containing the user if found, otherwise empty.
+     * @throws DataAccessException If the backing store can't be read.
+     */
+    Optional<User> findByUsername(String username);
+
+    /**
+     * Finds a user by their email address, without scanning every user.
+     * 
+     * @param email The email address to look for.
+     * @return An Optional containing the user if found, otherwise empty.
+     * @throws DataAccessException If the backing store can't be read.
+     */
+    Optional<User> findByEmail(String email);
+
     /**
      * Retrieves all users from the data source.
      * 
      * @return A list of all users.
+     * @throws DataAccessException If the backing store can't be read.
      */
     List<User> findAll();
 
+    /**
+     * Streams all users in ID order without loading them all into memory. The
+     * stream holds on to resources (eg: a database connection) until it's
+     * closed, so use it in a try-with-resources block.
+     * 
+     * @return A lazily populated stream of all users.
+     * @throws DataAccessException If the backing store can't be read.
+     */
+    Stream<User> streamAll();
+
+    /**
+     * Retrieves the next page of users in ID order (keyset pagination): unlike
+     * an offset, this costs the same for the last page as for the first.
+     * 
+     * @param afterId The last ID of the previous page; 0 for the first page.
+     * @param limit   The maximum number of users to return; at least 1.
+     * @return Up to `limit` users with an ID greater than `afterId`.
+     * @throws IllegalArgumentException If `limit` is less than 1.
+     * @throws DataAccessException If the backing store can't be read.
+     */
+    List<User> findPage(long afterId, int limit);
+
     /**
      * Saves a user entity. If the user is new, it's created.
      * If the user exists, it's updated.
      * 
      * @param user The user object to save.
+     * @throws DataAccessException If the backing store fails to write it.
      */
     void save(User user);
 
+    /**
+     * Saves many users at once, in batches rather than one round trip each. New
+     * users get their IDs assigned like with `save`.
+     * 
+     * @param users The user objects to save.
+     * @throws DataAccessException If the backing store fails to write them.
+     */
+    void saveAll(Collection<User> users);
+
     /**
      * Deletes a user by their unique ID.
      * 
      * @param id The ID of the user to delete.
+     * @throws DataAccessException If the backing store fails to delete it.
      */
     void deleteById(long id);
 }
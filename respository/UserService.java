@@ -14,9 +14,19 @@ public class UserService {
 
     public void registerNewUser(String username, String email) {
         System.out.println("Attempting to register user: " + username);
-        // Business logic here (e.g., check if username is taken, validate email)
+        // An index lookup, so registration doesn't slow down as users grow. Two
+        // concurrent registrations can both pass this check. With JDBC the unique
+        // index on username then rejects the second one (`DuplicateKeyException`);
+        // `InMemoryUserRepository` has no such constraint and saves both.
+        if (userRepository.findByUsername(username).isPresent()) {
+            throw new IllegalArgumentException("Username already taken: " + username);
+        }
         User newUser = new User(0, username, email); // ID is 0 for a new user
-        userRepository.save(newUser);
+        try {
+            userRepository.save(newUser);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Username already taken: " + username, e);
+        }
     }
 
     public List<User> getAllUsers() {
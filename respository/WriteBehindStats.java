@@ -0,0 +1,66 @@
+package respository;
+
+/**
+ * A point-in-time snapshot of a `WriteBehindUserRepository`'s metrics.
+ */
+public class WriteBehindStats {
+    private final int pending;
+    private final long writes;
+    private final long coalesced;
+    private final long batches;
+    private final long failedBatches;
+    private final long droppedWrites;
+    private final long blockedWrites;
+
+    WriteBehindStats(int pending, long writes, long coalesced, long batches, long failedBatches,
+            long droppedWrites, long blockedWrites) {
+        this.pending = pending;
+        this.writes = writes;
+        this.coalesced = coalesced;
+        this.batches = batches;
+        this.failedBatches = failedBatches;
+        this.droppedWrites = droppedWrites;
+        this.blockedWrites = blockedWrites;
+    }
+
+    // Ids buffered or being written
+    public int getPending() {
+        return pending;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    // Writes that replaced a buffered write to the same id, saving a round trip
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    // Batches the backing repository threw on; their writes were retried or dropped
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+
+    // Writes given up on: permanent failures, retries used up, or failed while closing
+    public long getDroppedWrites() {
+        return droppedWrites;
+    }
+
+    // Writes that had to wait for room in a full buffer
+    public long getBlockedWrites() {
+        return blockedWrites;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindStats [pending=" + pending + ", writes=" + writes + ", coalesced=" + coalesced
+                + ", batches=" + batches + ", failedBatches=" + failedBatches + ", droppedWrites=" + droppedWrites
+                + ", blockedWrites=" + blockedWrites
+                + "]";
+    }
+}
@@ -0,0 +1,565 @@
+package respository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A `UserRepository` decorator that buffers `save` and `deleteById` in memory
+ * and writes them to the backing repository in batches on a background thread,
+ * so callers don't wait for a database commit per write.
+ *
+ * - Writes are coalesced per id: saving a user three times before the next
+ * flush writes it once, with its latest state.
+ * - The buffer is bounded: once `maxPending` ids are waiting, writers block
+ * until a flush makes room, so a slow database slows writers down instead of
+ * running out of memory.
+ * - A batch is flushed when `batchSize` ids are waiting, or the oldest write has
+ * waited for the flush interval, whichever comes first.
+ * - New users (id 0) are saved synchronously, since the caller needs the id.
+ *
+ * `findById` and `findAllById` see buffered writes. The other queries go
+ * straight to the backing repository and only see writes once they're flushed;
+ * call `flush()` first when that matters. Buffered writes are lost if the
+ * process dies; `close()` flushes them on shutdown.
+ *
+ * A batch the backing repository throws on is logged and counted, then:
+ * - After a transient failure (a `DataAccessException`, eg: the database is
+ * down) it's put back ahead of newer writes (a newer write to the same id wins)
+ * and retried after the flush interval, up to `maxRetries` times in a row.
+ * Saves and deletes are idempotent, so retrying a batch that partly went
+ * through is safe. After that its writes are dropped.
+ * - After a permanent failure (eg: a `DuplicateKeyException`) its writes are
+ * retried one by one, and only the ones that fail again are dropped.
+ * Dropped writes are counted in the stats. While the backing repository keeps
+ * failing the buffer fills up; a writer waits at most the write timeout for
+ * room, then fails.
+ */
+public class WriteBehindUserRepository implements UserRepository, AutoCloseable {
+    // Marks a buffered delete
+    private static final User DELETED = new User(0, null, null);
+
+    private final UserRepository delegate;
+    private final int maxPending;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxRetries;
+    private final long writeTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition hasWrites = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    // Guarded by `lock`. Id -> latest state (or `DELETED`), oldest write first.
+    private final LinkedHashMap<Long, User> pending = new LinkedHashMap<>();
+    // The batch being written, still visible to reads until it's done
+    private Map<Long, User> flushing = Collections.emptyMap();
+    private long oldestPendingNanos;
+    // The latest batch failure, reported by `flush()` and `close()`
+    private RuntimeException lastFailure;
+    private int flushWaiters;
+    private boolean closed;
+    private final Thread flusher;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder droppedWrites = new LongAdder();
+    private final LongAdder blockedWrites = new LongAdder();
+
+    private WriteBehindUserRepository(Builder builder) {
+        if (builder.maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid max retries: " + builder.maxRetries);
+        }
+        if (builder.batchSize < 1 || builder.maxPending < builder.batchSize) {
+            throw new IllegalArgumentException("Invalid sizes: batch " + builder.batchSize + ", max pending "
+                    + builder.maxPending);
+        }
+        this.delegate = builder.delegate;
+        this.maxPending = builder.maxPending;
+        this.batchSize = builder.batchSize;
+        this.flushIntervalNanos = builder.flushIntervalNanos;
+        this.maxRetries = builder.maxRetries;
+        this.writeTimeoutNanos = builder.writeTimeoutNanos;
+
+        this.flusher = new Thread(this::runFlusher, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        lock.lock();
+        try {
+            User buffered = buffered(id);
+            if (buffered != null) {
+                return buffered == DELETED ? Optional.empty() : Optional.of(copyOf(buffered));
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Not buffered, so the backing repository has the latest state
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        List<Long> unbuffered = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Long id : new LinkedHashSet<>(ids)) {
+                User buffered = buffered(id);
+                if (buffered == null) {
+                    unbuffered.add(id);
+                } else if (buffered != DELETED) {
+                    users.add(copyOf(buffered));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!unbuffered.isEmpty()) {
+            users.addAll(delegate.findAllById(unbuffered));
+        }
+        return users;
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void save(User user) {
+        if (user.getId() == 0) {
+            delegate.save(user);
+            return;
+        }
+        buffer(user.getId(), copyOf(user));
+    }
+
+    @Override
+    public void saveAll(Collection<User> users) {
+        List<User> inserts = new ArrayList<>();
+        for (User user : users) {
+            if (user.getId() == 0) {
+                inserts.add(user);
+            } else {
+                buffer(user.getId(), copyOf(user));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            delegate.saveAll(inserts);
+        }
+    }
+
+    @Override
+    public void deleteById(long id) {
+        buffer(id, DELETED);
+    }
+
+    /**
+     * Blocks until every write buffered so far has been handed to the backing
+     * repository.
+     *
+     * @throws DataAccessException If a batch fails in the meantime; its writes
+     *                             are retried or dropped as usual.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            flushWaiters++;
+            try {
+                hasWrites.signal();
+                long failuresBefore = failedBatches.sum();
+                while (!pending.isEmpty() || !flushing.isEmpty()) {
+                    flushed.awaitUninterruptibly();
+                    if (failedBatches.sum() != failuresBefore) {
+                        throw new DataAccessException("Write-behind flush failed, " + (pending.size()
+                                + flushing.size()) + " writes still buffered", lastFailure);
+                    }
+                }
+            } finally {
+                flushWaiters--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the buffered writes and stops the background thread. Further
+     * writes throw an `IllegalStateException`. The backing repository is left
+     * open.
+     *
+     * @throws DataAccessException If writes were dropped while closing; a
+     *                             transient failure isn't retried, it drops
+     *                             everything still buffered.
+     */
+    @Override
+    public void close() {
+        long droppedBefore;
+        lock.lock();
+        try {
+            droppedBefore = droppedWrites.sum();
+            closed = true;
+            hasWrites.signal();
+            // Writers blocked on a full buffer fail instead of waiting forever
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        long dropped = droppedWrites.sum() - droppedBefore;
+        if (dropped > 0) {
+            RuntimeException failure;
+            lock.lock();
+            try {
+                failure = lastFailure;
+            } finally {
+                lock.unlock();
+            }
+            throw new DataAccessException("Closed, but " + dropped + " writes were dropped", failure);
+        }
+    }
+
+    public WriteBehindStats getStats() {
+        int size;
+        lock.lock();
+        try {
+            size = pending.size() + flushing.size();
+        } finally {
+            lock.unlock();
+        }
+        return new WriteBehindStats(size, writes.sum(), coalesced.sum(), batches.sum(), failedBatches.sum(),
+                droppedWrites.sum(), blockedWrites.sum());
+    }
+
+    private void buffer(long id, User user) {
+        lock.lock();
+        try {
+            // Overwriting an already buffered id takes no room
+            if (pending.size() >= maxPending && !pending.containsKey(id) && !closed) {
+                blockedWrites.increment();
+                hasWrites.signal();
+                long remaining = writeTimeoutNanos;
+                do {
+                    if (remaining <= 0) {
+                        throw new DataAccessException("Timed out after "
+                                + TimeUnit.NANOSECONDS.toMillis(writeTimeoutNanos)
+                                + "ms waiting for room in the write-behind buffer", lastFailure);
+                    }
+                    try {
+                        remaining = notFull.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DataAccessException("Interrupted while waiting for room in the write-behind buffer",
+                                e);
+                    }
+                } while (pending.size() >= maxPending && !pending.containsKey(id) && !closed);
+            }
+            if (closed) {
+                throw new IllegalStateException("Repository is closed");
+            }
+            // The flusher waits for the first write, then for a full batch or the
+            // flush interval
+            boolean first = pending.isEmpty();
+            if (first) {
+                oldestPendingNanos = System.nanoTime();
+            }
+            // A re-written id keeps its place, so a busy user can't starve
+            if (pending.put(id, user) != null) {
+                coalesced.increment();
+            }
+            writes.increment();
+            if (first || pending.size() >= batchSize) {
+                hasWrites.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must hold `lock`. The latest state of `id` not yet written, or null.
+    private User buffered(long id) {
+        User user = pending.get(id);
+        return user != null ? user : flushing.get(id);
+    }
+
+    private void runFlusher() {
+        // Failed attempts in a row, for `maxRetries`
+        int failures = 0;
+        while (true) {
+            Map<Long, User> batch;
+            lock.lock();
+            try {
+                if (!awaitBatch()) {
+                    return;
+                }
+                batch = takeBatch();
+                flushing = batch;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException failure = null;
+            Map<Long, User> unwritten = Collections.emptyMap();
+            try {
+                write(batch);
+                batches.increment();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                failure = e;
+                // One bad write fails the whole batch every time; write them one
+                // by one to find it
+                unwritten = isRetryable(e) ? batch : writeEach(batch);
+            }
+
+            lock.lock();
+            try {
+                flushing = Collections.emptyMap();
+                if (failure != null) {
+                    lastFailure = failure;
+                    failedBatches.increment();
+                }
+                boolean retry = false;
+                if (unwritten.isEmpty()) {
+                    failures = 0;
+                } else if (closed) {
+                    // No retries while closing; `close()` reports what was dropped
+                    droppedWrites.add(unwritten.size() + pending.size());
+                    pending.clear();
+                } else if (++failures > maxRetries) {
+                    droppedWrites.add(unwritten.size());
+                    failures = 0;
+                } else {
+                    requeue(unwritten);
+                    retry = true;
+                }
+                flushed.signalAll();
+                notFull.signalAll();
+                if (retry) {
+                    backOff();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // A constraint violation (or a bug: anything that isn't a
+    // `DataAccessException`) fails the same way however often it's retried
+    private static boolean isRetryable(RuntimeException e) {
+        return e instanceof DataAccessException && !(e instanceof ConstraintViolationException);
+    }
+
+    // Writes a batch one write at a time, dropping the writes that fail for good.
+    // Returns the writes left over when a transient failure cuts it short.
+    private Map<Long, User> writeEach(Map<Long, User> batch) {
+        Iterator<Map.Entry<Long, User>> remaining = batch.entrySet().iterator();
+        while (remaining.hasNext()) {
+            Map.Entry<Long, User> write = remaining.next();
+            try {
+                if (write.getValue() == DELETED) {
+                    delegate.deleteById(write.getKey());
+                } else {
+                    delegate.save(copyOf(write.getValue()));
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                if (isRetryable(e)) {
+                    Map<Long, User> rest = new LinkedHashMap<>();
+                    rest.put(write.getKey(), write.getValue());
+                    remaining.forEachRemaining(next -> rest.put(next.getKey(), next.getValue()));
+                    return rest;
+                }
+                droppedWrites.increment();
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    // Must hold `lock`. Puts a failed batch back ahead of the writes buffered
+    // since; a newer write to the same id keeps its value.
+    private void requeue(Map<Long, User> batch) {
+        LinkedHashMap<Long, User> retry = new LinkedHashMap<>(batch);
+        retry.putAll(pending);
+        pending.clear();
+        pending.putAll(retry);
+        oldestPendingNanos = System.nanoTime();
+    }
+
+    // Must hold `lock`. Waits out the flush interval before retrying, unless
+    // closed in the meantime.
+    private void backOff() {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        long remaining;
+        while (!closed && (remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                hasWrites.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                // Only `close()` stops the flusher
+            }
+        }
+    }
+
+    // Must hold `lock`. Returns false once closed with nothing left to write.
+    private boolean awaitBatch() {
+        while (true) {
+            if (pending.isEmpty()) {
+                if (closed) {
+                    return false;
+                }
+                hasWrites.awaitUninterruptibly();
+                continue;
+            }
+            long waited = System.nanoTime() - oldestPendingNanos;
+            if (pending.size() >= batchSize || waited >= flushIntervalNanos || flushWaiters > 0 || closed) {
+                return true;
+            }
+            try {
+                hasWrites.awaitNanos(flushIntervalNanos - waited);
+            } catch (InterruptedException e) {
+                // Only `close()` stops the flusher; treat it as a nudge to check again
+            }
+        }
+    }
+
+    // Must hold `lock`. Removes up to `batchSize` of the oldest writes.
+    private Map<Long, User> takeBatch() {
+        Map<Long, User> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<Long, User>> oldestFirst = pending.entrySet().iterator();
+        while (oldestFirst.hasNext() && batch.size() < batchSize) {
+            Map.Entry<Long, User> write = oldestFirst.next();
+            batch.put(write.getKey(), write.getValue());
+            oldestFirst.remove();
+        }
+        // Close enough: the rest were written no earlier than the batch
+        oldestPendingNanos = System.nanoTime();
+        return batch;
+    }
+
+    private void write(Map<Long, User> batch) {
+        List<User> saves = new ArrayList<>(batch.size());
+        List<Long> deletes = new ArrayList<>();
+        batch.forEach((id, user) -> {
+            if (user == DELETED) {
+                deletes.add(id);
+            } else {
+                saves.add(copyOf(user));
+            }
+        });
+        if (!saves.isEmpty()) {
+            delegate.saveAll(saves);
+        }
+        for (long id : deletes) {
+            delegate.deleteById(id);
+        }
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUsername(), user.getEmail());
+    }
+
+    public static class Builder {
+        private final UserRepository delegate;
+        private int maxPending = 10_000;
+        private int batchSize = 500;
+        private long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private int maxRetries = 5;
+        private long writeTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+
+        public Builder(UserRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * How many ids may wait to be written before writers block.
+         */
+        public Builder maxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * The longest a write waits in the buffer while the load is too light to
+         * fill a batch.
+         */
+        public Builder flushInterval(long time, TimeUnit unit) {
+            this.flushIntervalNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * How many times in a row a batch that failed transiently is retried,
+         * one flush interval apart, before its writes are dropped.
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * The longest a write waits for room in a full buffer before it fails
+         * with a `DataAccessException`.
+         */
+        public Builder writeTimeout(long time, TimeUnit unit) {
+            this.writeTimeoutNanos = unit.toNanos(time);
+            return this;
+        }
+
+        public WriteBehindUserRepository build() {
+            return new WriteBehindUserRepository(this);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package threadpool;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded blocking queue much like `ArrayBlockingQueue`, with the addition of
+ * `offerAll()` which enqueues a whole batch under a single lock acquisition.
+ *
+ * The queue owns the locking, blocking and capacity; the order in which tasks come
+ * out is up to its `TaskBuffer` (FIFO, by priority, fair share across tenants).
+ */
+class BoundedTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    private final TaskBuffer tasks;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    public BoundedTaskQueue(int capacity) {
+        this(capacity, new FifoTaskBuffer());
+    }
+
+    public BoundedTaskQueue(int capacity, TaskBuffer tasks) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Enqueues as many tasks from `batch`, starting at index `from`, as there is
+     * room for. Returns how many were enqueued; the rest are left to the caller.
+     */
+    public int offerAll(List<? extends Runnable> batch, int from) {
+        lock.lock();
+        try {
+            int count = Math.min(batch.size() - from, capacity - tasks.size());
+            for (int i = 0; i < count; i++) {
+                tasks.add(batch.get(from + i));
+            }
+            if (count == 1) {
+                notEmpty.signal();
+            } else if (count > 1) {
+                notEmpty.signalAll();
+            }
+            return Math.max(count, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        lock.lock();
+        try {
+            if (tasks.size() == capacity) {
+                return false;
+            }
+            tasks.add(task);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (tasks.size() == capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            tasks.add(task);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (tasks.size() == capacity) {
+                notFull.await();
+            }
+            tasks.add(task);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (tasks.size() == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (tasks.size() == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller must hold the lock
+    private Runnable dequeue() {
+        Runnable task = tasks.poll();
+        if (task != null) {
+            notFull.signal();
+        }
+        return task;
+    }
+
+    /**
+     * Removes the queued task that matters least, as decided by the `TaskBuffer`.
+     */
+    public Runnable evict() {
+        lock.lock();
+        try {
+            Runnable task = tasks.evict();
+            if (task != null) {
+                notFull.signal();
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return tasks.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            boolean removed = tasks.remove(o);
+            if (removed) {
+                notFull.signal();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            int count = 0;
+            while (count < maxElements && tasks.size() > 0) {
+                c.add(tasks.poll());
+                count++;
+            }
+            if (count > 0) {
+                notFull.signalAll();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Iterates over a snapshot; the queue itself may change underneath
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            return tasks.snapshot().iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package threadpool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a FIFO sub-queue per tenant and serves the tenants with queued work in
+ * weighted round-robin: a tenant with weight 3 gets up to 3 tasks per turn, one
+ * with weight 1 gets 1. A tenant flooding the pool with bulk work only ever
+ * delays the others by its weight, not by the length of its backlog. Tasks
+ * submitted without a tenant share the `default` tenant.
+ */
+class FairShareTaskBuffer implements TaskBuffer {
+    static final String DEFAULT_TENANT = "default";
+
+    private static class TenantQueue {
+        final String tenant;
+        final int weight;
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        int credit;
+
+        TenantQueue(String tenant, int weight) {
+            this.tenant = tenant;
+            this.weight = weight;
+        }
+    }
+
+    private final Map<String, Integer> weights;
+    // Only tenants with queued tasks, so idle tenants cost nothing
+    private final Map<String, TenantQueue> tenants = new HashMap<>();
+    // Service order; the head is the tenant whose turn it is
+    private final ArrayDeque<TenantQueue> rotation = new ArrayDeque<>();
+    private int size = 0;
+
+    FairShareTaskBuffer(Map<String, Integer> weights) {
+        this.weights = Map.copyOf(weights);
+    }
+
+    @Override
+    public void add(Runnable task) {
+        String tenant = task instanceof TenantTask t ? t.tenant : DEFAULT_TENANT;
+        TenantQueue queue = tenants.get(tenant);
+        if (queue == null) {
+            queue = new TenantQueue(tenant, Math.max(weights.getOrDefault(tenant, 1), 1));
+            queue.credit = queue.weight;
+            tenants.put(tenant, queue);
+            rotation.addLast(queue);
+        }
+        queue.tasks.addLast(task);
+        size++;
+    }
+
+    @Override
+    public Runnable poll() {
+        TenantQueue queue = rotation.peekFirst();
+        if (queue == null) {
+            return null;
+        }
+
+        Runnable task = queue.tasks.pollFirst();
+        size--;
+        queue.credit--;
+        if (queue.tasks.isEmpty()) {
+            rotation.pollFirst();
+            tenants.remove(queue.tenant);
+        } else if (queue.credit == 0) {
+            // Turn is over; back of the line with a fresh credit
+            rotation.pollFirst();
+            queue.credit = queue.weight;
+            rotation.addLast(queue);
+        }
+        return task;
+    }
+
+    @Override
+    public Runnable peek() {
+        TenantQueue queue = rotation.peekFirst();
+        return queue == null ? null : queue.tasks.peekFirst();
+    }
+
+    // The oldest task of the tenant with the largest backlog, so evictions hit the
+    // tenant flooding the pool rather than the one whose turn it is
+    @Override
+    public Runnable evict() {
+        TenantQueue largest = null;
+        for (TenantQueue queue : rotation) {
+            if (largest == null || queue.tasks.size() > largest.tasks.size()) {
+                largest = queue;
+            }
+        }
+        if (largest == null) {
+            return null;
+        }
+
+        Runnable task = largest.tasks.pollFirst();
+        size--;
+        if (largest.tasks.isEmpty()) {
+            rotation.remove(largest);
+            tenants.remove(largest.tenant);
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean remove(Object task) {
+        for (TenantQueue queue : rotation) {
+            if (queue.tasks.remove(task)) {
+                size--;
+                if (queue.tasks.isEmpty()) {
+                    rotation.remove(queue);
+                    tenants.remove(queue.tenant);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Runnable> snapshot() {
+        List<Runnable> all = new ArrayList<>(size);
+        for (TenantQueue queue : rotation) {
+            all.addAll(queue.tasks);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,45 @@
+package threadpool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+class FifoTaskBuffer implements TaskBuffer {
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void add(Runnable task) {
+        tasks.addLast(task);
+    }
+
+    @Override
+    public Runnable poll() {
+        return tasks.pollFirst();
+    }
+
+    @Override
+    public Runnable peek() {
+        return tasks.peekFirst();
+    }
+
+    // The oldest
+    @Override
+    public Runnable evict() {
+        return tasks.pollFirst();
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public boolean remove(Object task) {
+        return tasks.remove(task);
+    }
+
+    @Override
+    public List<Runnable> snapshot() {
+        return new ArrayList<>(tasks);
+    }
+}
@@ -0,0 +1,92 @@
+package threadpool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, log-linear histogram of latencies in nanoseconds, in the spirit of
+ * HdrHistogram. Every power of two is split into 32 linear sub-buckets, so a
+ * recorded value is off by at most ~3% while the whole range up to
+ * `Long.MAX_VALUE` fits in under 2k counters.
+ *
+ * `record()` is a few bit operations plus an atomic increment; it never allocates
+ * or locks, so it can sit on the hot path of every task.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // Values in [2^n, 2^(n+1)) share one power-of-two range; the bits right
+        // below the leading one pick the sub-bucket within it
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // The largest value that maps to the given bucket
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * The value at the given percentile (0-100), in the given unit. Precise to the
+     * width of the bucket it falls in.
+     */
+    public long getValueAtPercentile(double percentile, TimeUnit unit) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return unit.convert(Math.min(highestValueAt(i), maxNanos.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax(TimeUnit unit) {
+        return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public double getMean(TimeUnit unit) {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count / unit.toNanos(1);
+    }
+}
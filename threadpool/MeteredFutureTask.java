@@ -0,0 +1,26 @@
+package threadpool;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+// A `FutureTask` catches whatever its task throws, so the worker never sees the
+// failure; this one counts it before storing it in the future
+class MeteredFutureTask<T> extends FutureTask<T> {
+    private final PoolMetrics metrics;
+
+    MeteredFutureTask(Callable<T> task, PoolMetrics metrics) {
+        super(task);
+        this.metrics = metrics;
+    }
+
+    MeteredFutureTask(Runnable task, T result, PoolMetrics metrics) {
+        super(task, result);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+        metrics.failed.increment();
+        super.setException(t);
+    }
+}
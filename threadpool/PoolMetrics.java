@@ -0,0 +1,56 @@
+package threadpool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Wraps a submitted task to time how long it waited in the queue and how long it ran
+class TimedTask implements Runnable, TaskWrapper {
+    private final Runnable task;
+    private final PoolMetrics metrics;
+    private final long enqueuedNanos;
+
+    TimedTask(Runnable task, PoolMetrics metrics) {
+        this.task = task;
+        this.metrics = metrics;
+        this.enqueuedNanos = System.nanoTime();
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        metrics.waitTimes.record(start - enqueuedNanos);
+        try {
+            task.run();
+        } finally {
+            metrics.runTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Runnable unwrap() {
+        return task;
+    }
+}
+
+/**
+ * The live counters behind `SimpleThreadPool.getStats()`. Counters are `LongAdder`s
+ * so that workers bumping them don't contend on one cache line.
+ */
+class PoolMetrics {
+    final LongAdder submitted = new LongAdder();
+    final LongAdder completed = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+    final AtomicInteger active = new AtomicInteger();
+    final LatencyHistogram waitTimes = new LatencyHistogram();
+    final LatencyHistogram runTimes = new LatencyHistogram();
+    private final boolean recordLatencies;
+
+    PoolMetrics(boolean recordLatencies) {
+        this.recordLatencies = recordLatencies;
+    }
+
+    Runnable wrap(Runnable task) {
+        return recordLatencies ? new TimedTask(task, this) : task;
+    }
+}
@@ -0,0 +1,103 @@
+package threadpool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point-in-time snapshot of a pool's metrics. Latencies are in microseconds.
+ */
+class PoolStats {
+    private final int poolSize;
+    private final int activeThreads;
+    private final int queueSize;
+    private final long submittedTasks;
+    private final long completedTasks;
+    private final long failedTasks;
+    private final long rejectedTasks;
+    private final long waitP50Micros;
+    private final long waitP99Micros;
+    private final long waitMaxMicros;
+    private final long runP50Micros;
+    private final long runP99Micros;
+    private final long runMaxMicros;
+
+    PoolStats(int poolSize, int queueSize, PoolMetrics metrics) {
+        this.poolSize = poolSize;
+        this.activeThreads = Math.min(metrics.active.get(), poolSize);
+        this.queueSize = queueSize;
+        this.submittedTasks = metrics.submitted.sum();
+        this.completedTasks = metrics.completed.sum();
+        this.failedTasks = metrics.failed.sum();
+        this.rejectedTasks = metrics.rejected.sum();
+        this.waitP50Micros = metrics.waitTimes.getValueAtPercentile(50, TimeUnit.MICROSECONDS);
+        this.waitP99Micros = metrics.waitTimes.getValueAtPercentile(99, TimeUnit.MICROSECONDS);
+        this.waitMaxMicros = metrics.waitTimes.getMax(TimeUnit.MICROSECONDS);
+        this.runP50Micros = metrics.runTimes.getValueAtPercentile(50, TimeUnit.MICROSECONDS);
+        this.runP99Micros = metrics.runTimes.getValueAtPercentile(99, TimeUnit.MICROSECONDS);
+        this.runMaxMicros = metrics.runTimes.getMax(TimeUnit.MICROSECONDS);
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    public int getIdleThreads() {
+        return poolSize - activeThreads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public long getSubmittedTasks() {
+        return submittedTasks;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public long getFailedTasks() {
+        return failedTasks;
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks;
+    }
+
+    public long getWaitP50Micros() {
+        return waitP50Micros;
+    }
+
+    public long getWaitP99Micros() {
+        return waitP99Micros;
+    }
+
+    public long getWaitMaxMicros() {
+        return waitMaxMicros;
+    }
+
+    public long getRunP50Micros() {
+        return runP50Micros;
+    }
+
+    public long getRunP99Micros() {
+        return runP99Micros;
+    }
+
+    public long getRunMaxMicros() {
+        return runMaxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats [poolSize=" + poolSize + ", active=" + activeThreads + ", queueSize=" + queueSize
+                + ", submitted=" + submittedTasks + ", completed=" + completedTasks + ", failed=" + failedTasks
+                + ", rejected=" + rejectedTasks + ", wait(us) p50/p99/max=" + waitP50Micros + "/" + waitP99Micros
+                + "/" + waitMaxMicros + ", run(us) p50/p99/max=" + runP50Micros + "/" + runP99Micros + "/"
+                + runMaxMicros + "]";
+    }
+}
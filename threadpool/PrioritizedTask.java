@@ -0,0 +1,24 @@
+package threadpool;
+
+class PrioritizedTask implements Runnable, TaskWrapper {
+    private final Runnable task;
+    final int priority;
+    // Breaks ties so that tasks of equal priority still run in submission order
+    final long sequence;
+
+    PrioritizedTask(Runnable task, int priority, long sequence) {
+        this.task = task;
+        this.priority = priority;
+        this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+
+    @Override
+    public Runnable unwrap() {
+        return task;
+    }
+}
@@ -0,0 +1,78 @@
+package threadpool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Hands out the task with the highest priority first, FIFO among equal
+ * priorities. Tasks submitted without a priority count as priority 0.
+ */
+class PriorityTaskBuffer implements TaskBuffer {
+    // Highest priority first; comparing rather than negating the priority, which
+    // overflows for `Integer.MIN_VALUE`
+    private static final Comparator<Runnable> ORDER = ((Comparator<Runnable>) (a, b) -> Integer
+            .compare(priorityOf(b), priorityOf(a)))
+            .thenComparingLong(PriorityTaskBuffer::sequenceOf);
+    // Least urgent first: lowest priority, then oldest
+    private static final Comparator<Runnable> EVICTION = Comparator
+            .comparingInt(PriorityTaskBuffer::priorityOf)
+            .thenComparingLong(PriorityTaskBuffer::sequenceOf);
+
+    private final PriorityQueue<Runnable> tasks = new PriorityQueue<>(ORDER);
+
+    @Override
+    public void add(Runnable task) {
+        tasks.add(task);
+    }
+
+    @Override
+    public Runnable poll() {
+        return tasks.poll();
+    }
+
+    @Override
+    public Runnable peek() {
+        return tasks.peek();
+    }
+
+    // The heap only knows its head, so finding the least urgent task is a scan;
+    // fine for a rejection path
+    @Override
+    public Runnable evict() {
+        Runnable victim = null;
+        for (Runnable task : tasks) {
+            if (victim == null || EVICTION.compare(task, victim) < 0) {
+                victim = task;
+            }
+        }
+        if (victim != null) {
+            tasks.remove(victim);
+        }
+        return victim;
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public boolean remove(Object task) {
+        return tasks.remove(task);
+    }
+
+    @Override
+    public List<Runnable> snapshot() {
+        return new ArrayList<>(tasks);
+    }
+
+    private static int priorityOf(Runnable task) {
+        return task instanceof PrioritizedTask p ? p.priority : 0;
+    }
+
+    private static long sequenceOf(Runnable task) {
+        return task instanceof PrioritizedTask p ? p.sequence : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,112 @@
+package threadpool;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Decides what happens to a task that `SimpleThreadPool.execute()` can't accept
+ * because the queue is full and the pool is already at its max size.
+ *
+ * The built-in policies cancel a `Future` they drop (eg: one from `submit()`),
+ * so whoever waits on it gets a `CancellationException` instead of blocking
+ * forever.
+ */
+@FunctionalInterface
+interface RejectionPolicy {
+    /**
+     * `task` is the task as the pool queues it, wrapped with its priority or
+     * tenant, so putting it back keeps its place in the ordering;
+     * `TaskWrapper.unwrapAll(task)` is the task that was submitted.
+     */
+    void reject(Runnable task, SimpleThreadPool pool);
+
+    /**
+     * Drops the task and logs it; the pool's original behaviour.
+     */
+    static RejectionPolicy discard() {
+        return (task, pool) -> {
+            System.out.println("Task queue is full, task rejected.");
+            cancelIfFuture(task);
+        };
+    }
+
+    /**
+     * Throws `RejectedExecutionException` so the caller knows the task was not
+     * accepted.
+     */
+    static RejectionPolicy abort() {
+        return (task, pool) -> {
+            throw new RejectedExecutionException("Task " + TaskWrapper.unwrapAll(task)
+                    + " rejected, task queue is full");
+        };
+    }
+
+    /**
+     * Runs the task on the submitting thread. This throttles producers naturally:
+     * while a producer is busy running a task it can't submit new ones.
+     */
+    static RejectionPolicy callerRuns() {
+        return (task, pool) -> {
+            if (!pool.isShutdown()) {
+                // Unwrapped: it never waited in the queue, so it stays out of the latencies
+                TaskWrapper.unwrapAll(task).run();
+            } else {
+                cancelIfFuture(task);
+            }
+        };
+    }
+
+    /**
+     * Blocks the submitter until there is room in the queue, for at most the given
+     * timeout, then gives up with `RejectedExecutionException`.
+     */
+    static RejectionPolicy blockWithTimeout(long timeout, TimeUnit unit) {
+        return (task, pool) -> {
+            try {
+                if (pool.enqueue(task, timeout, unit)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RejectedExecutionException("Task " + TaskWrapper.unwrapAll(task)
+                    + " rejected, no room in the queue after " + timeout + " " + unit);
+        };
+    }
+
+    /**
+     * Evicts a queued task to make room for the new one; useful when only the
+     * freshest work matters. On a FIFO pool that's the oldest task, on a
+     * prioritized pool the oldest of the lowest priority, on a fair share pool the
+     * oldest of the tenant with the most queued tasks.
+     */
+    static RejectionPolicy discardOldest() {
+        return (task, pool) -> {
+            if (!pool.isShutdown()) {
+                Runnable evicted = pool.evictQueued();
+                if (evicted != null) {
+                    cancelIfFuture(evicted);
+                }
+                pool.resubmit(task);
+            } else {
+                cancelIfFuture(task);
+            }
+        };
+    }
+
+    /**
+     * Hands the rejected task, as it was submitted, to the given callback, eg: to
+     * persist it or to retry it later.
+     */
+    static RejectionPolicy callback(Consumer<Runnable> handler) {
+        return (task, pool) -> handler.accept(TaskWrapper.unwrapAll(task));
+    }
+
+    private static void cancelIfFuture(Runnable task) {
+        if (TaskWrapper.unwrapAll(task) instanceof Future<?> future) {
+            future.cancel(false);
+        }
+    }
+}
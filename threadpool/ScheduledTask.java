@@ -0,0 +1,86 @@
+package threadpool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A task scheduled on a `TimingWheel`. Runs once, at a fixed rate or with a fixed
+ * delay between runs, until it is cancelled.
+ */
+class ScheduledTask implements Runnable {
+    private static final int WAITING = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    private final Runnable command;
+    private final TimingWheel wheel;
+    // > 0: fixed rate, < 0: fixed delay, 0: one-shot
+    private final long periodNanos;
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+    private volatile long deadlineNanos;
+
+    // Bucket bookkeeping, only ever touched by the wheel's ticker thread
+    long remainingRounds;
+    ScheduledTask prev;
+    ScheduledTask next;
+
+    ScheduledTask(Runnable command, TimingWheel wheel, long deadlineNanos, long periodNanos) {
+        this.command = command;
+        this.wheel = wheel;
+        this.deadlineNanos = deadlineNanos;
+        this.periodNanos = periodNanos;
+    }
+
+    @Override
+    public void run() {
+        if (!state.compareAndSet(WAITING, RUNNING)) {
+            return; // cancelled
+        }
+
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            // Like `ScheduledExecutorService`, a failing periodic task is not run again
+            state.set(CANCELLED);
+            throw e;
+        }
+
+        if (periodNanos == 0 || !state.compareAndSet(RUNNING, WAITING)) {
+            return;
+        }
+        // Fixed rate keeps the original cadence; fixed delay counts from the end of this run
+        deadlineNanos = periodNanos > 0 ? deadlineNanos + periodNanos : System.nanoTime() - periodNanos;
+        wheel.reschedule(this);
+    }
+
+    /**
+     * Prevents any further runs; a run already in progress is not interrupted.
+     */
+    public boolean cancel() {
+        while (true) {
+            int current = state.get();
+            if (current == CANCELLED) {
+                return false;
+            }
+            if (state.compareAndSet(current, CANCELLED)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
+    public boolean isPeriodic() {
+        return periodNanos != 0;
+    }
+
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+}
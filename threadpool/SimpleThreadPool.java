@@ -0,0 +1,1070 @@
+package threadpool;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+class Worker extends Thread {
+    private final SimpleThreadPool pool;
+    private final BlockingQueue<Runnable> queue;
+    // Only present in work-stealing mode; the owner pushes/pops at the head (LIFO)
+    // while thieves take from the tail (FIFO) so they rarely touch the same end
+    private final Deque<Runnable> localQueue;
+    // Held while a task runs; `shutdown()` only interrupts workers it can lock,
+    // ie: idle ones, so running tasks are never interrupted by a graceful shutdown.
+    // Non-reentrant, like `ThreadPoolExecutor.Worker`'s lock: a task calling
+    // `shutdown()` must not be able to lock its own worker and interrupt itself.
+    private final Semaphore runLock = new Semaphore(1);
+    private Runnable firstTask;
+
+    public Worker(SimpleThreadPool pool, BlockingQueue<Runnable> queue, Runnable firstTask, boolean workStealing) {
+        this.pool = pool;
+        this.queue = queue;
+        this.firstTask = firstTask;
+        this.localQueue = workStealing ? new ConcurrentLinkedDeque<>() : null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            // The task that caused this worker to be spawned skips the queue
+            Runnable task = firstTask;
+            firstTask = null;
+            while (task != null || (task = nextTask()) != null) {
+                runLock.acquireUninterruptibly();
+                try {
+                    // An interrupt meant to wake an idle worker must not leak into the
+                    // task, unless the pool is stopping and the task should see it
+                    if (pool.isStopping()) {
+                        interrupt();
+                    } else {
+                        Thread.interrupted();
+                    }
+                    pool.getMetrics().active.incrementAndGet();
+                    task.run();
+                } catch (RuntimeException e) {
+                    // A failing task must not take the worker down with it
+                    pool.getMetrics().failed.increment();
+                    e.printStackTrace();
+                } finally {
+                    pool.getMetrics().active.decrementAndGet();
+                    pool.getMetrics().completed.increment();
+                    runLock.release();
+                    task = null;
+                }
+            }
+        } finally {
+            pool.workerExited(this);
+        }
+    }
+
+    // Returns `null` when the worker should exit: the pool is stopping, it is shut
+    // down and there is nothing left to drain, or the worker has retired
+    private Runnable nextTask() {
+        long idleSince = System.nanoTime();
+        while (true) {
+            if (pool.isStopping()) {
+                return null;
+            }
+
+            boolean draining = pool.isShutdown();
+            try {
+                Runnable task;
+                if (localQueue != null) {
+                    task = nextStealingTask(draining);
+                } else if (draining) {
+                    task = queue.poll();
+                } else if (pool.isAboveCoreSize()) {
+                    // Only workers above the core size time out; core workers block indefinitely
+                    task = queue.poll(pool.getKeepAliveNanos(), TimeUnit.NANOSECONDS);
+                } else {
+                    task = queue.take();
+                }
+
+                if (task != null) {
+                    return task;
+                }
+                if (draining) {
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                // Woken up by `shutdown()`; loop around and re-check the pool state
+                continue;
+            }
+
+            // Idle for longer than the keep alive and the pool is above its core size
+            if (System.nanoTime() - idleSince >= pool.getKeepAliveNanos() && pool.tryRetire(this)) {
+                return null;
+            }
+        }
+    }
+
+    private Runnable nextStealingTask(boolean draining) {
+        Runnable task = scanForTask();
+        if (task != null || draining) {
+            return task;
+        }
+
+        // Nothing anywhere: register as idle, then look once more. A task that
+        // arrived before the registration is found by the rescan, one that arrives
+        // after it unparks this worker, so the worker can park indefinitely.
+        pool.workerIdle(this);
+        try {
+            task = scanForTask();
+            if (task == null) {
+                if (pool.isAboveCoreSize()) {
+                    LockSupport.parkNanos(this, pool.getKeepAliveNanos());
+                } else {
+                    LockSupport.park(this);
+                }
+                // An interrupt from `shutdown()` only needs to wake the worker; the
+                // caller re-checks the pool state
+                Thread.interrupted();
+            }
+        } finally {
+            pool.workerBusy(this);
+        }
+        return task;
+    }
+
+    private Runnable scanForTask() {
+        Runnable task = localQueue.pollFirst();
+        if (task == null) {
+            task = queue.poll();
+        }
+        if (task == null) {
+            task = pool.steal(this);
+        }
+        return task;
+    }
+
+    boolean belongsTo(SimpleThreadPool pool) {
+        return this.pool == pool;
+    }
+
+    void push(Runnable task) {
+        localQueue.offerFirst(task);
+    }
+
+    // Takes a task back if nobody has stolen it yet, so the owner can run it itself
+    boolean unpush(Runnable task) {
+        return localQueue != null && localQueue.removeIf(queued -> TaskWrapper.unwrapAll(queued) == task);
+    }
+
+    Runnable stealFrom() {
+        return localQueue.pollLast();
+    }
+
+    void drainLocalQueue(List<Runnable> into) {
+        if (localQueue != null) {
+            for (Runnable task; (task = localQueue.pollFirst()) != null;) {
+                into.add(task);
+            }
+        }
+    }
+
+    void interruptIfIdle() {
+        if (!isInterrupted() && runLock.tryAcquire()) {
+            try {
+                interrupt();
+            } finally {
+                runLock.release();
+            }
+        }
+    }
+}
+
+/**
+ * Workers are started lazily: a submission starts a new worker until there are
+ * `coreThreads` of them, after that tasks are queued. Only when the queue is full
+ * does the pool grow up to `maxThreads`, and workers above the core size retire
+ * once they have been idle for the keep alive time.
+ */
+class SimpleThreadPool implements Executor {
+    private final BoundedTaskQueue queue;
+    private final int coreThreads;
+    private final int maxThreads;
+    private final long keepAliveNanos;
+    private final boolean workStealing;
+    private final RejectionPolicy rejectionPolicy;
+    private final AtomicInteger threadIds = new AtomicInteger();
+    private final PoolMetrics metrics;
+    private final boolean prioritized;
+    private final AtomicLong prioritySequence = new AtomicLong();
+    private ObjectName mbeanName;
+    // Copy-on-write array, replaced under the pool's monitor, so that `execute()`
+    // and thieves can read it without taking a lock
+    private volatile Worker[] workers = new Worker[0];
+    // Work-stealing workers parked for lack of work; nothing else wakes them, since
+    // a task pushed onto a deque or offered to the shared queue signals nobody
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+
+    // RUNNING -> SHUTDOWN (no new tasks, queue is drained) -> TERMINATED, or
+    // RUNNING/SHUTDOWN -> STOP (no new tasks, queue is abandoned) -> TERMINATED
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+    private static final int TERMINATED = 3;
+    private volatile int runState = RUNNING;
+
+    private final long timerTickNanos;
+    private final int timerWheelSize;
+    // Created on the first `schedule*()` call so pools that never schedule don't
+    // pay for the ticker thread
+    private TimingWheel timer;
+
+    private SimpleThreadPool(Builder builder) {
+        int max = builder.maxThreads == -1 ? Math.max(builder.coreThreads, 1) : builder.maxThreads;
+        if (builder.coreThreads < 0 || max < 1 || max < builder.coreThreads) {
+            throw new IllegalArgumentException(
+                    "Invalid pool size: coreThreads=" + builder.coreThreads + ", maxThreads=" + max);
+        }
+        if (builder.queueCapacity < 1 || builder.keepAliveNanos < 0) {
+            throw new IllegalArgumentException("Invalid queueCapacity=" + builder.queueCapacity + " or keepAlive="
+                    + builder.keepAliveNanos + "ns");
+        }
+
+        this.queue = new BoundedTaskQueue(builder.queueCapacity, builder.taskBuffer.get());
+        this.prioritized = builder.prioritized;
+        this.coreThreads = builder.coreThreads;
+        this.maxThreads = max;
+        this.keepAliveNanos = builder.keepAliveNanos;
+        this.workStealing = builder.workStealing;
+        this.rejectionPolicy = builder.rejectionPolicy;
+        this.timerTickNanos = builder.timerTickNanos;
+        this.timerWheelSize = builder.timerWheelSize;
+        this.metrics = new PoolMetrics(builder.recordLatencies);
+    }
+
+    public SimpleThreadPool(int numThreads, int maxNumTasks) {
+        this(numThreads, maxNumTasks, false);
+    }
+
+    /**
+     * In work-stealing mode every worker owns a local deque. Tasks submitted from
+     * a worker thread go onto that worker's deque, tasks submitted from outside go
+     * onto the shared queue, and idle workers steal from their peers.
+     */
+    public SimpleThreadPool(int numThreads, int maxNumTasks, boolean workStealing) {
+        this(new Builder().coreThreads(numThreads).maxThreads(numThreads).queueCapacity(maxNumTasks)
+                .workStealing(workStealing));
+    }
+
+    // Not synchronized; the queues are thread safe and `runState` is volatile, so
+    // submitters don't serialize on the pool's monitor
+    @Override
+    public void execute(Runnable task) throws IllegalStateException {
+        if (this.runState != RUNNING) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+
+        dispatch(wrap(task, 0, null));
+    }
+
+    /**
+     * Submits a task with a priority; higher runs first. Only takes effect on a pool
+     * built with `Builder.prioritized()`, otherwise the task is queued FIFO.
+     */
+    public void execute(Runnable task, int priority) throws IllegalStateException {
+        if (this.runState != RUNNING) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+
+        dispatch(wrap(task, priority, null));
+    }
+
+    /**
+     * Submits a task on behalf of a tenant. On a pool built with
+     * `Builder.fairShare(...)` each tenant gets its own sub-queue and the tenants
+     * are served in weighted round-robin, otherwise the task is queued FIFO.
+     */
+    public void execute(String tenant, Runnable task) throws IllegalStateException {
+        if (this.runState != RUNNING) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+
+        dispatch(wrap(task, 0, tenant));
+    }
+
+    // The rejection policy gets the wrapped task, so a task it puts back keeps its
+    // priority and tenant
+    private void dispatch(Runnable wrapped) {
+        if (accept(wrapped)) {
+            metrics.submitted.increment();
+        } else if (this.runState != RUNNING) {
+            // Shut down after the caller's check
+            throw new IllegalStateException("Thread pool is shut down");
+        } else {
+            metrics.rejected.increment();
+            rejectionPolicy.reject(wrapped, this);
+        }
+    }
+
+    // Called by a rejection policy with the task it was given
+    void resubmit(Runnable wrapped) throws IllegalStateException {
+        if (this.runState != RUNNING) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+
+        dispatch(wrapped);
+    }
+
+    // Layers on whatever the queue and the metrics need to know about the task
+    private Runnable wrap(Runnable task, int priority, String tenant) {
+        Runnable wrapped = metrics.wrap(task);
+        if (prioritized) {
+            wrapped = new PrioritizedTask(wrapped, priority, prioritySequence.getAndIncrement());
+        }
+        if (tenant != null) {
+            wrapped = new TenantTask(wrapped, tenant);
+        }
+        return wrapped;
+    }
+
+    /**
+     * Non-blocking submission that bypasses the rejection policy: returns `false`
+     * if the pool is stopped or saturated. Producers can combine it with
+     * `getQueuePressure()` to throttle themselves before they get rejected.
+     */
+    public boolean trySubmit(Runnable task) {
+        if (this.runState == RUNNING && accept(wrap(task, 0, null))) {
+            metrics.submitted.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new MeteredFutureTask<>(task, metrics);
+        execute(future);
+        return future;
+    }
+
+    public <T> Future<T> submit(Callable<T> task, int priority) {
+        FutureTask<T> future = new MeteredFutureTask<>(task, metrics);
+        execute(future, priority);
+        return future;
+    }
+
+    public <T> Future<T> submit(String tenant, Callable<T> task) {
+        FutureTask<T> future = new MeteredFutureTask<>(task, metrics);
+        execute(tenant, future);
+        return future;
+    }
+
+    public Future<?> submit(Runnable task) {
+        FutureTask<Void> future = new MeteredFutureTask<>(task, null, metrics);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * Enqueues a batch of tasks. Tasks that start a new core worker are handed to it
+     * directly, the rest are added to the queue under a single lock acquisition
+     * instead of one per task. Whatever doesn't fit goes through the usual growth and
+     * rejection path.
+     */
+    public void executeAll(List<? extends Runnable> tasks) throws IllegalStateException {
+        if (this.runState != RUNNING) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+
+        List<Runnable> batch = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            batch.add(wrap(task, 0, null));
+        }
+
+        if (workStealing && Thread.currentThread() instanceof Worker worker && worker.belongsTo(this)) {
+            for (Runnable task : batch) {
+                worker.push(task);
+                signalWork();
+            }
+            metrics.submitted.add(batch.size());
+            return;
+        }
+
+        int next = 0;
+        while (next < batch.size() && workers.length < coreThreads && addWorker(batch.get(next), coreThreads)) {
+            next++;
+        }
+
+        int queued = this.queue.offerAll(batch, next);
+        if (queued > 0) {
+            ensureWorker();
+            for (int i = 0; i < queued; i++) {
+                signalWork();
+            }
+        }
+        metrics.submitted.add(next + queued);
+
+        for (next += queued; next < batch.size(); next++) {
+            if (accept(batch.get(next))) {
+                metrics.submitted.increment();
+            } else {
+                metrics.rejected.increment();
+                rejectionPolicy.reject(batch.get(next), this);
+            }
+        }
+    }
+
+    /**
+     * Runs all tasks and waits for every one of them to complete, successfully or
+     * not. The returned futures are in the same order as the tasks.
+     */
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new MeteredFutureTask<>(task, metrics));
+        }
+        executeAll(futures);
+
+        // A work-stealing worker waiting on its own forked tasks runs whatever hasn't
+        // been stolen yet instead of blocking; otherwise it could deadlock the pool
+        Worker self = Thread.currentThread() instanceof Worker worker && worker.belongsTo(this) ? worker : null;
+        for (FutureTask<T> future : futures) {
+            if (!future.isDone() && self != null && self.unpush(future)) {
+                future.run();
+            }
+            try {
+                future.get();
+            } catch (ExecutionException | CancellationException e) {
+                // Reported through the future
+            }
+        }
+        return new ArrayList<>(futures);
+    }
+
+    /**
+     * Runs all tasks and returns the result of the first one that completes
+     * successfully; the others are cancelled. If every task fails (or is rejected),
+     * the last failure is thrown.
+     */
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        if (tasks.isEmpty()) {
+            throw new IllegalArgumentException("No tasks to invoke");
+        }
+
+        // Each future queues itself once done, cancelled included, so a rejected
+        // task counts as a failure instead of never showing up
+        BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<>();
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new MeteredFutureTask<>(task, metrics) {
+                @Override
+                protected void done() {
+                    completed.add(this);
+                }
+            });
+        }
+
+        try {
+            executeAll(futures);
+
+            Worker self = Thread.currentThread() instanceof Worker worker && worker.belongsTo(this) ? worker : null;
+            ExecutionException failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    return nextCompleted(completed, futures, self).get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                } catch (CancellationException e) {
+                    failure = new ExecutionException(e);
+                }
+            }
+            throw failure;
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // Like `invokeAll()`, a work-stealing worker runs its own not-yet-stolen tasks
+    // while it waits, instead of blocking a worker its tasks may need
+    private static <T> Future<T> nextCompleted(BlockingQueue<Future<T>> completed, List<FutureTask<T>> futures,
+            Worker self) throws InterruptedException {
+        if (self != null) {
+            for (FutureTask<T> future : futures) {
+                Future<T> done = completed.poll();
+                if (done != null) {
+                    return done;
+                }
+                if (!future.isDone() && self.unpush(future)) {
+                    future.run();
+                }
+            }
+        }
+        return completed.take();
+    }
+
+    /**
+     * Runs the task once after the given delay, on this pool's workers.
+     */
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+        return timer().schedule(task, delay, unit);
+    }
+
+    /**
+     * Runs the task every `period`, starting after `initialDelay`. A run that
+     * overruns the period delays the next one instead of overlapping with it.
+     */
+    public ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return timer().scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    /**
+     * Runs the task repeatedly, waiting `delay` between the end of one run and the
+     * start of the next.
+     */
+    public ScheduledTask scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        return timer().scheduleWithFixedDelay(task, initialDelay, delay, unit);
+    }
+
+    private synchronized TimingWheel timer() {
+        if (runState != RUNNING) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+        if (timer == null) {
+            timer = new TimingWheel(this, timerTickNanos, TimeUnit.NANOSECONDS, timerWheelSize);
+        }
+        return timer;
+    }
+
+    private boolean accept(Runnable task) {
+        // Forked work stays on the submitting worker's deque; no shared lock involved
+        if (workStealing && Thread.currentThread() instanceof Worker worker && worker.belongsTo(this)) {
+            worker.push(task);
+            signalWork();
+            return true;
+        }
+
+        if (workers.length < coreThreads && addWorker(task, coreThreads)) {
+            return true;
+        }
+
+        // `offer()` will return false if the queue is full, unlike `put()` which blocks
+        if (this.queue.offer(task)) {
+            // The pool may have shut down, even terminated, since the caller checked,
+            // leaving no worker to run the task; take it back unless one already did
+            if (this.runState != RUNNING && this.queue.remove(task)) {
+                return false;
+            }
+            ensureWorker();
+            signalWork();
+            return true;
+        }
+
+        // The queue is backing up, grow beyond the core size
+        return addWorker(task, maxThreads);
+    }
+
+    private void ensureWorker() {
+        // With a core size of 0 somebody still has to drain the queue
+        if (workers.length == 0) {
+            addWorker(null, maxThreads);
+        }
+    }
+
+    // Called by a rejection policy with the task it was given, already wrapped
+    boolean enqueue(Runnable wrapped, long timeout, TimeUnit unit) throws InterruptedException {
+        if (this.runState == RUNNING && this.queue.offer(wrapped, timeout, unit)) {
+            // Same re-check as `accept()`
+            if (this.runState != RUNNING && this.queue.remove(wrapped)) {
+                return false;
+            }
+            metrics.submitted.increment();
+            ensureWorker();
+            signalWork();
+            return true;
+        }
+        return false;
+    }
+
+    // Wakes one parked work-stealing worker, if any, like `ForkJoinPool` does
+    // when it pushes a task. Workers register before their last scan, so either
+    // that scan sees the task or the worker is in `idleWorkers` by now.
+    private void signalWork() {
+        if (!workStealing) {
+            return;
+        }
+        Worker idle = idleWorkers.poll();
+        if (idle != null) {
+            LockSupport.unpark(idle);
+        }
+    }
+
+    void workerIdle(Worker worker) {
+        idleWorkers.offer(worker);
+    }
+
+    // A no-op if `signalWork()` already took the worker out
+    void workerBusy(Worker worker) {
+        idleWorkers.remove(worker);
+    }
+
+    Runnable evictQueued() {
+        return this.queue.evict();
+    }
+
+    /**
+     * Starts all core workers up front instead of waiting for submissions.
+     */
+    public void prestartCoreThreads() {
+        boolean started;
+        do {
+            started = addWorker(null, coreThreads);
+        } while (started);
+    }
+
+    private synchronized boolean addWorker(Runnable firstTask, int limit) {
+        // While shutting down, a worker may still be needed to drain the queue
+        boolean drainOnly = runState == SHUTDOWN && firstTask == null && !queue.isEmpty();
+        if ((runState != RUNNING && !drainOnly) || workers.length >= limit) {
+            return false;
+        }
+
+        Worker worker = new Worker(this, queue, firstTask, workStealing);
+        worker.setName("pool-worker-" + threadIds.incrementAndGet());
+
+        Worker[] grown = Arrays.copyOf(workers, workers.length + 1);
+        grown[workers.length] = worker;
+        workers = grown;
+
+        worker.start();
+        return true;
+    }
+
+    synchronized boolean tryRetire(Worker worker) {
+        int size = workers.length;
+        // Never retire the last worker while tasks are still waiting
+        if (size <= coreThreads || (size == 1 && !queue.isEmpty())) {
+            return false;
+        }
+        return removeWorker(worker);
+    }
+
+    synchronized void workerExited(Worker worker) {
+        removeWorker(worker);
+
+        if (runState == RUNNING && workers.length == 0 && !queue.isEmpty()) {
+            // The last worker died with tasks still queued
+            addWorker(null, maxThreads);
+        }
+        tryTerminate();
+    }
+
+    // Caller must hold the pool's monitor
+    private boolean removeWorker(Worker worker) {
+        int index = Arrays.asList(workers).indexOf(worker);
+        if (index < 0) {
+            return false;
+        }
+
+        Worker[] shrunk = new Worker[workers.length - 1];
+        System.arraycopy(workers, 0, shrunk, 0, index);
+        System.arraycopy(workers, index + 1, shrunk, index, shrunk.length - index);
+        workers = shrunk;
+        return true;
+    }
+
+    // Caller must hold the pool's monitor
+    private void tryTerminate() {
+        if (runState == RUNNING || runState == TERMINATED || workers.length > 0) {
+            return;
+        }
+        if (runState == SHUTDOWN && !queue.isEmpty()) {
+            addWorker(null, maxThreads);
+            return;
+        }
+
+        runState = TERMINATED;
+        unregisterMBean();
+        notifyAll();
+    }
+
+    PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * A consistent-enough snapshot of the pool's counters and latency percentiles.
+     * Wait and run latencies are only recorded if enabled on the builder.
+     */
+    public PoolStats getStats() {
+        return new PoolStats(workers.length, queue.size(), metrics);
+    }
+
+    /**
+     * Exposes the pool's metrics over JMX as
+     * `threadpool:type=SimpleThreadPool,name=<name>`. Unregistered automatically
+     * once the pool terminates.
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("threadpool:type=SimpleThreadPool,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new StandardMBean(new MXBeanView(), SimpleThreadPoolMXBean.class, true), objectName);
+        mbeanName = objectName;
+        return objectName;
+    }
+
+    // Caller must hold the pool's monitor
+    private void unregisterMBean() {
+        if (mbeanName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        mbeanName = null;
+    }
+
+    // Every JMX read goes straight to the live counters
+    private class MXBeanView implements SimpleThreadPoolMXBean {
+        @Override
+        public int getPoolSize() {
+            return SimpleThreadPool.this.getPoolSize();
+        }
+
+        @Override
+        public int getCoreThreads() {
+            return coreThreads;
+        }
+
+        @Override
+        public int getMaxThreads() {
+            return maxThreads;
+        }
+
+        // Same as `PoolStats`, without building a snapshot just for one number
+        @Override
+        public int getActiveThreads() {
+            return Math.min(metrics.active.get(), workers.length);
+        }
+
+        @Override
+        public int getIdleThreads() {
+            int poolSize = workers.length;
+            return poolSize - Math.min(metrics.active.get(), poolSize);
+        }
+
+        @Override
+        public int getQueueSize() {
+            return queue.size();
+        }
+
+        @Override
+        public int getQueueRemainingCapacity() {
+            return queue.remainingCapacity();
+        }
+
+        @Override
+        public long getSubmittedTasks() {
+            return metrics.submitted.sum();
+        }
+
+        @Override
+        public long getCompletedTasks() {
+            return metrics.completed.sum();
+        }
+
+        @Override
+        public long getFailedTasks() {
+            return metrics.failed.sum();
+        }
+
+        @Override
+        public long getRejectedTasks() {
+            return metrics.rejected.sum();
+        }
+
+        @Override
+        public long getWaitP50Micros() {
+            return metrics.waitTimes.getValueAtPercentile(50, TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public long getWaitP99Micros() {
+            return metrics.waitTimes.getValueAtPercentile(99, TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public long getWaitMaxMicros() {
+            return metrics.waitTimes.getMax(TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public long getRunP50Micros() {
+            return metrics.runTimes.getValueAtPercentile(50, TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public long getRunP99Micros() {
+            return metrics.runTimes.getValueAtPercentile(99, TimeUnit.MICROSECONDS);
+        }
+
+        @Override
+        public long getRunMaxMicros() {
+            return metrics.runTimes.getMax(TimeUnit.MICROSECONDS);
+        }
+    }
+
+    boolean isAboveCoreSize() {
+        return workers.length > coreThreads;
+    }
+
+    long getKeepAliveNanos() {
+        return keepAliveNanos;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    /**
+     * How full the task queue is, from 0.0 (empty) to 1.0 (full).
+     */
+    public double getQueuePressure() {
+        int size = queue.size();
+        return (double) size / (size + queue.remainingCapacity());
+    }
+
+    /**
+     * `true` once `shutdown()` or `shutdownNow()` has been called; no new tasks are
+     * accepted from then on.
+     */
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    boolean isStopping() {
+        return runState >= STOP;
+    }
+
+    public boolean isTerminated() {
+        return runState == TERMINATED;
+    }
+
+    public int getPoolSize() {
+        return workers.length;
+    }
+
+    public int getCoreThreads() {
+        return coreThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
+    Runnable steal(Worker thief) {
+        Worker[] peers = workers;
+        if (peers.length < 2) {
+            return null;
+        }
+
+        // Start the scan at a random peer so thieves don't all gang up on the first
+        // worker in the array
+        int start = ThreadLocalRandom.current().nextInt(peers.length);
+        for (int i = 0; i < peers.length; i++) {
+            Worker victim = peers[(start + i) % peers.length];
+            if (victim != thief) {
+                Runnable task = victim.stealFrom();
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Orderly shutdown: stops accepting new tasks, but every task already queued is
+     * still executed. Idle workers are woken up so they can exit once the queue is
+     * drained. Does not wait; use `awaitTermination()` for that.
+     */
+    public synchronized void shutdown() {
+        if (runState == RUNNING) {
+            runState = SHUTDOWN;
+        }
+        stopTimer();
+        for (Worker worker : workers) {
+            worker.interruptIfIdle();
+        }
+        tryTerminate();
+    }
+
+    /**
+     * Stops accepting new tasks, interrupts every worker (including the ones running
+     * a task) and returns the tasks that never started.
+     */
+    public synchronized List<Runnable> shutdownNow() {
+        if (runState < STOP) {
+            runState = STOP;
+        }
+        stopTimer();
+        for (Worker worker : workers) {
+            worker.interrupt();
+        }
+
+        List<Runnable> unexecuted = new ArrayList<>();
+        queue.drainTo(unexecuted);
+        for (Worker worker : workers) {
+            worker.drainLocalQueue(unexecuted);
+        }
+        unexecuted.replaceAll(TaskWrapper::unwrapAll);
+        tryTerminate();
+        return unexecuted;
+    }
+
+    // Pending timers are cancelled on shutdown; only already-queued runs complete
+    private void stopTimer() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Blocks until all workers have exited after a shutdown, or the timeout elapses.
+     * Returns `true` if the pool terminated.
+     */
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (runState != TERMINATED) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Kept for existing callers; same as `shutdownNow()`.
+     */
+    public void stop() {
+        shutdownNow();
+    }
+
+    public static class Builder {
+        private int coreThreads = 1;
+        private int maxThreads = -1; // defaults to the core size
+        private long keepAliveNanos = TimeUnit.SECONDS.toNanos(60);
+        private int queueCapacity = 100;
+        private boolean workStealing = false;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.discard();
+        private long timerTickNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private int timerWheelSize = 512;
+        private boolean recordLatencies = false;
+        private Supplier<TaskBuffer> taskBuffer = FifoTaskBuffer::new;
+        private boolean prioritized = false;
+
+        public Builder coreThreads(int coreThreads) {
+            this.coreThreads = coreThreads;
+            return this;
+        }
+
+        public Builder maxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        public Builder keepAlive(long time, TimeUnit unit) {
+            this.keepAliveNanos = unit.toNanos(time);
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder workStealing(boolean workStealing) {
+            this.workStealing = workStealing;
+            return this;
+        }
+
+        public Builder rejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+
+        /**
+         * Resolution and size of the timing wheel behind the `schedule*()` methods.
+         * Scheduled tasks fire up to one tick late.
+         */
+        public Builder timer(long tickDuration, TimeUnit unit, int wheelSize) {
+            this.timerTickNanos = unit.toNanos(tickDuration);
+            this.timerWheelSize = wheelSize;
+            return this;
+        }
+
+        /**
+         * Records queue wait and run time histograms for every task. Costs one small
+         * wrapper object per task, so it is off by default; the counters are always on.
+         */
+        public Builder recordLatencies(boolean recordLatencies) {
+            this.recordLatencies = recordLatencies;
+            return this;
+        }
+
+        /**
+         * Queue tasks by priority (see `execute(task, priority)`) instead of FIFO.
+         */
+        public Builder prioritized() {
+            this.taskBuffer = PriorityTaskBuffer::new;
+            this.prioritized = true;
+            return this;
+        }
+
+        /**
+         * Queue tasks per tenant (see `execute(tenant, task)`) and serve tenants in
+         * weighted round-robin. Tenants missing from `weights` get a weight of 1.
+         */
+        public Builder fairShare(Map<String, Integer> weights) {
+            this.taskBuffer = () -> new FairShareTaskBuffer(weights);
+            this.prioritized = false;
+            return this;
+        }
+
+        public SimpleThreadPool build() {
+            return new SimpleThreadPool(this);
+        }
+    }
+}
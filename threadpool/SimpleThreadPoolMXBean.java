@@ -0,0 +1,42 @@
+package threadpool;
+
+/**
+ * JMX view of a `SimpleThreadPool`, registered with
+ * `SimpleThreadPool.registerMBean(name)`. Shows up in JConsole/VisualVM under
+ * `threadpool:type=SimpleThreadPool,name=<name>`.
+ */
+public interface SimpleThreadPoolMXBean {
+    int getPoolSize();
+
+    int getCoreThreads();
+
+    int getMaxThreads();
+
+    int getActiveThreads();
+
+    int getIdleThreads();
+
+    int getQueueSize();
+
+    int getQueueRemainingCapacity();
+
+    long getSubmittedTasks();
+
+    long getCompletedTasks();
+
+    long getFailedTasks();
+
+    long getRejectedTasks();
+
+    long getWaitP50Micros();
+
+    long getWaitP99Micros();
+
+    long getWaitMaxMicros();
+
+    long getRunP50Micros();
+
+    long getRunP99Micros();
+
+    long getRunMaxMicros();
+}
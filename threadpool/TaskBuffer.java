@@ -0,0 +1,28 @@
+package threadpool;
+
+import java.util.List;
+
+/**
+ * Decides the order in which `BoundedTaskQueue` hands out tasks. Implementations
+ * are not thread safe; the queue only calls them while holding its lock.
+ */
+interface TaskBuffer {
+    void add(Runnable task);
+
+    Runnable poll();
+
+    Runnable peek();
+
+    /**
+     * Removes the task that matters least, to make room for a new one (see
+     * `RejectionPolicy.discardOldest()`). Not necessarily the one `poll()` would
+     * return, which is the one that matters most.
+     */
+    Runnable evict();
+
+    int size();
+
+    boolean remove(Object task);
+
+    List<Runnable> snapshot();
+}
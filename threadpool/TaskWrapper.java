@@ -0,0 +1,14 @@
+package threadpool;
+
+// Tasks that wrap another task, eg: to carry a priority or to time it
+interface TaskWrapper {
+    Runnable unwrap();
+
+    // Peels off every layer of wrapping to get back the task that was submitted
+    static Runnable unwrapAll(Runnable task) {
+        while (task instanceof TaskWrapper wrapper) {
+            task = wrapper.unwrap();
+        }
+        return task;
+    }
+}
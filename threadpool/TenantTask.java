@@ -0,0 +1,21 @@
+package threadpool;
+
+class TenantTask implements Runnable, TaskWrapper {
+    private final Runnable task;
+    final String tenant;
+
+    TenantTask(Runnable task, String tenant) {
+        this.task = task;
+        this.tenant = tenant;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+
+    @Override
+    public Runnable unwrap() {
+        return task;
+    }
+}
@@ -1,75 +1,7 @@
 package threadpool;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-
-class Worker extends Thread {
-    private final BlockingQueue<Runnable> queue;
-    private boolean isStopped = false;
-
-    public Worker(BlockingQueue<Runnable> queue) {
-        this.queue = queue;
-    }
-
-    @Override
-    public void run() {
-        while (!isStopped()) {
-            try {
-                Runnable runnable = queue.take();
-                runnable.run();
-            } catch (InterruptedException e) {
-                this.isStopped();
-            }
-        }
-    }
-
-    public synchronized void stopWorker() {
-        this.isStopped = true;
-        this.interrupt();
-    }
-
-    public synchronized boolean isStopped() {
-        return isStopped;
-    }
-}
-
-class SimpleThreadPool {
-    private final BlockingQueue<Runnable> queue;
-    private final List<Worker> workers = new ArrayList<>();
-    private boolean isStopped = false;
-
-    public SimpleThreadPool(int numThreads, int maxNumTasks) {
-        queue = new ArrayBlockingQueue<>(maxNumTasks);
-
-        for (int i = 0; i < maxNumTasks; i++) {
-            workers.add(new Worker(queue));
-        }
-
-        for (Worker worker : workers) {
-            worker.start();
-        }
-    }
-
-    public synchronized void execute(Runnable task) throws IllegalStateException {
-        if (this.isStopped) {
-            throw new IllegalStateException("Thread pool is stopped");
-        }
-
-        // `offer()` will return false if the queue is full, unlike `put()` which blocks
-        if (!this.queue.offer(task)) {
-            System.out.println("Task queue is full, task rejected.");
-        }
-    }
-
-    public synchronized void stop() {
-        this.isStopped = true;
-        for (Worker worker : workers) {
-            worker.stopWorker();
-        }
-    }
-}
+import java.util.concurrent.TimeUnit;
 
 public class ThreadPoolV1 {
     public static void main(String[] args) throws InterruptedException {
@@ -90,9 +22,12 @@ public class ThreadPoolV1 {
             });
         }
 
-        Thread.sleep(10000);
-
-        threadPool.stop();
+        // Stop accepting tasks but let the queued ones finish, same as `ExecutorService`
+        threadPool.shutdown();
+        if (!threadPool.awaitTermination(60, TimeUnit.SECONDS)) {
+            List<Runnable> unexecuted = threadPool.shutdownNow();
+            System.out.println(unexecuted.size() + " tasks never started");
+        }
 
         System.out.println("\n**** Thread pool stopped 🛑 ****\n");
     }
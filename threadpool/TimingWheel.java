@@ -0,0 +1,215 @@
+package threadpool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Intrusive doubly linked list of the tasks that hash to one slot of the wheel
+class Bucket {
+    private ScheduledTask head;
+    private ScheduledTask tail;
+
+    void add(ScheduledTask task) {
+        task.prev = tail;
+        task.next = null;
+        if (tail == null) {
+            head = task;
+        } else {
+            tail.next = task;
+        }
+        tail = task;
+    }
+
+    void remove(ScheduledTask task) {
+        if (task.prev == null) {
+            head = task.next;
+        } else {
+            task.prev.next = task.next;
+        }
+        if (task.next == null) {
+            tail = task.prev;
+        } else {
+            task.next.prev = task.prev;
+        }
+        task.prev = null;
+        task.next = null;
+    }
+
+    void cancelAll() {
+        while (head != null) {
+            ScheduledTask task = head;
+            remove(task);
+            task.cancel();
+        }
+    }
+
+    // Hands expired tasks to the wheel to run, counts down the rest, drops
+    // cancelled ones
+    void expire(TimingWheel wheel) {
+        ScheduledTask task = head;
+        while (task != null) {
+            ScheduledTask next = task.next;
+            if (task.isCancelled()) {
+                remove(task);
+            } else if (task.remainingRounds <= 0) {
+                remove(task);
+                wheel.fire(task);
+            } else {
+                task.remainingRounds--;
+            }
+            task = next;
+        }
+    }
+}
+
+/**
+ * A hashed timing wheel: a ring of buckets where bucket `i` holds the tasks due
+ * at tick `i` (modulo the wheel size). Scheduling is O(1) - hash the deadline to a
+ * bucket - and each tick only visits one bucket, no matter how many timers are
+ * pending. Timers further out than one revolution carry a round counter. The
+ * trade-off is precision: a task fires up to one tick late.
+ *
+ * A single ticker thread owns the buckets. New tasks are handed to it through a
+ * lock-free queue, and expired tasks run on the given pool, not the ticker. A run
+ * the pool has no room for is retried on the next tick rather than dropped.
+ */
+class TimingWheel {
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final SimpleThreadPool pool;
+    private final Queue<ScheduledTask> pending = new ConcurrentLinkedQueue<>();
+    private final Thread ticker;
+    private final long startNanos;
+    private long tick = 0;
+    private volatile boolean isStopped = false;
+
+    public TimingWheel(SimpleThreadPool pool, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize < 1) {
+            throw new IllegalArgumentException("Invalid tickDuration=" + tickDuration + " or wheelSize=" + wheelSize);
+        }
+
+        // Round up to a power of two so a bucket index is a mask instead of a modulo
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.buckets = new Bucket[Math.max(size, 1)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = buckets.length - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.pool = pool;
+        this.startNanos = System.nanoTime();
+
+        this.ticker = new Thread(this::runTicker, "timing-wheel");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    public ScheduledTask schedule(Runnable command, long delay, TimeUnit unit) {
+        return add(new ScheduledTask(command, this, System.nanoTime() + unit.toNanos(delay), 0));
+    }
+
+    public ScheduledTask scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid period: " + period);
+        }
+        return add(new ScheduledTask(command, this, System.nanoTime() + unit.toNanos(initialDelay),
+                unit.toNanos(period)));
+    }
+
+    public ScheduledTask scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Invalid delay: " + delay);
+        }
+        return add(new ScheduledTask(command, this, System.nanoTime() + unit.toNanos(initialDelay),
+                -unit.toNanos(delay)));
+    }
+
+    ScheduledTask add(ScheduledTask task) {
+        if (isStopped) {
+            throw new IllegalStateException("Timing wheel is stopped");
+        }
+        pending.offer(task);
+        return task;
+    }
+
+    void reschedule(ScheduledTask task) {
+        if (isStopped) {
+            task.cancel();
+        } else {
+            pending.offer(task);
+        }
+    }
+
+    // Called by the ticker thread. `trySubmit()` rather than `execute()`: it
+    // reports a saturated pool instead of handing the run to the rejection
+    // policy, which could silently drop it (and with it every later run of a
+    // periodic task) or run it on the ticker thread.
+    void fire(ScheduledTask task) {
+        if (pool.trySubmit(task)) {
+            return;
+        }
+        if (isStopped || pool.isShutdown()) {
+            task.cancel();
+        } else {
+            // Overdue, so the next tick puts it in the bucket being expired
+            pending.offer(task);
+        }
+    }
+
+    /**
+     * Stops the ticker; tasks that have not fired yet never will.
+     */
+    public void stop() {
+        isStopped = true;
+        LockSupport.unpark(ticker);
+    }
+
+    private void runTicker() {
+        while (!isStopped) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = tickDeadline - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue; // woken early or spuriously; re-check the deadline
+            }
+
+            transferPending();
+            buckets[(int) (tick & mask)].expire(this);
+            tick++;
+        }
+
+        for (Bucket bucket : buckets) {
+            bucket.cancelAll();
+        }
+        for (ScheduledTask task; (task = pending.poll()) != null;) {
+            task.cancel();
+        }
+    }
+
+    private void transferPending() {
+        for (ScheduledTask task; (task = pending.poll()) != null;) {
+            if (task.isCancelled()) {
+                continue;
+            }
+
+            // The tick at which the deadline has passed (rounded up; no
+            // `Math.ceilDiv` before Java 18); anything already overdue goes into
+            // the current bucket
+            long sinceStart = task.getDeadlineNanos() - startNanos;
+            long ticks = Math.floorDiv(sinceStart, tickNanos) + (Math.floorMod(sinceStart, tickNanos) == 0 ? 0 : 1);
+            long dueTick = Math.max(ticks - 1, tick);
+            task.remainingRounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(task);
+        }
+    }
+
+    public int getWheelSize() {
+        return buckets.length;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+}
@@ -0,0 +1,179 @@
+package threadpool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import threadpool.virtual.VirtualThreadPool;
+
+/**
+ * JMH benchmarks comparing `SimpleThreadPool` (FIFO and work stealing) with
+ * `ThreadPoolExecutor`, `ForkJoinPool` and `VirtualThreadPool` on the same
+ * workload: small CPU-bound tasks submitted from one thread.
+ *
+ * - `submit`: submit throughput, ie: how many tasks per second the submitting
+ * thread hands over. Each invocation submits a burst; waiting for the burst to
+ * finish happens outside the measurement.
+ * - `endToEnd`: tasks completed per second, from the first submit of a burst
+ * until its last task finished.
+ * - `roundTrip`: submit-to-completion latency of a single task, sampled; JMH
+ * reports the p50/p90/p99/p99.9 percentiles.
+ *
+ * Each runs at 1, 2, 4 and 8 threads; pass eg: `-p threads=1,2,4,8,16` to go up
+ * to the number of cores. Virtual threads run on the JDK's carrier threads, so
+ * `VirtualThreadPool` ignores `threads`; its concurrency limit is as large as a
+ * burst, so it measures virtual threads rather than the limiter.
+ *
+ *   mvn -f threadpool/pom.xml package
+ *   java -jar threadpool/target/benchmarks.jar [-p threads=...]
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ThreadPoolBenchmark {
+    private static final int BURST = 10_000;
+    // Iterations of busy work per task; small enough that pool overhead dominates
+    private static final int WORK_PER_TASK = 200;
+
+    // Keeps the JIT from optimizing the busy work away
+    private static volatile long sink;
+
+    @Param({ "SimpleThreadPool", "SimpleThreadPool-stealing", "ThreadPoolExecutor", "ForkJoinPool",
+            "VirtualThreadPool" })
+    public String pool;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private Executor executor;
+    private Runnable shutdown;
+
+    @Setup(Level.Trial)
+    public void startPool() {
+        switch (pool) {
+        case "SimpleThreadPool", "SimpleThreadPool-stealing" -> {
+            SimpleThreadPool simple = new SimpleThreadPool.Builder()
+                    .coreThreads(threads)
+                    .queueCapacity(BURST)
+                    .workStealing(pool.endsWith("-stealing"))
+                    .rejectionPolicy(RejectionPolicy.callerRuns())
+                    .build();
+            simple.prestartCoreThreads();
+            executor = simple;
+            shutdown = simple::shutdown;
+        }
+        case "ThreadPoolExecutor" -> {
+            ExecutorService jdk = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>());
+            executor = jdk;
+            shutdown = jdk::shutdown;
+        }
+        case "ForkJoinPool" -> {
+            ForkJoinPool forkJoin = new ForkJoinPool(threads);
+            executor = forkJoin;
+            shutdown = forkJoin::shutdown;
+        }
+        case "VirtualThreadPool" -> {
+            VirtualThreadPool virtual = new VirtualThreadPool(BURST);
+            executor = virtual;
+            shutdown = virtual::shutdown;
+        }
+        default -> throw new IllegalArgumentException("Unknown pool: " + pool);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopPool() {
+        shutdown.run();
+    }
+
+    // A burst in flight; `submit` waits for it after the measured part
+    @State(Scope.Thread)
+    public static class Burst {
+        CountDownLatch done;
+
+        @Setup(Level.Invocation)
+        public void start() {
+            done = new CountDownLatch(BURST);
+        }
+
+        @TearDown(Level.Invocation)
+        public void awaitCompletion() throws InterruptedException {
+            if (!done.await(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Burst did not finish in time");
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public void submit(Burst burst) {
+        CountDownLatch done = burst.done;
+        for (int i = 0; i < BURST; i++) {
+            executor.execute(() -> {
+                busyWork();
+                done.countDown();
+            });
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public void endToEnd() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        for (int i = 0; i < BURST; i++) {
+            executor.execute(() -> {
+                busyWork();
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            busyWork();
+            done.countDown();
+        });
+        done.await();
+    }
+
+    private static void busyWork() {
+        long x = System.nanoTime();
+        for (int i = 0; i < WORK_PER_TASK; i++) {
+            // xorshift; cheap and impossible to constant-fold
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        sink = x;
+    }
+}
@@ -0,0 +1,35 @@
+package threadpool.virtual;
+
+import java.util.concurrent.TimeUnit;
+
+public class ThreadPoolV3 {
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("\n**** Virtual thread pool started ✅ ****\n");
+
+        // At most 1000 tasks in flight, each one on its own virtual thread
+        VirtualThreadPool threadPool = new VirtualThreadPool(1000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            int taskNo = i;
+            threadPool.execute(() -> {
+                try {
+                    // A blocking call unmounts the virtual thread, freeing its carrier thread
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                if (taskNo % 1000 == 0) {
+                    System.out.println(Thread.currentThread() + ": Task " + taskNo);
+                }
+            });
+        }
+
+        threadPool.shutdown();
+        threadPool.awaitTermination(60, TimeUnit.SECONDS);
+
+        // 10k one second tasks with 1000 in flight take ~10s instead of ~55min on 3 threads
+        System.out.println("\nAll tasks done in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        System.out.println("\n**** Virtual thread pool stopped 🛑 ****\n");
+    }
+}
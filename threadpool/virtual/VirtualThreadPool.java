@@ -0,0 +1,112 @@
+package threadpool.virtual;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every task on its own virtual thread instead of handing it to a fixed set
+ * of workers. Blocking calls (I/O, `Thread.sleep`) unmount the virtual thread from
+ * its carrier so tens of thousands of tasks can be in flight at once.
+ *
+ * Since virtual threads are cheap there is nothing to pool; what still needs a
+ * limit is the downstream resource (a database, a remote service), so a semaphore
+ * caps how many tasks run concurrently.
+ *
+ * Needs Java 21; it lives in its own package so the rest of `threadpool` still
+ * builds on Java 17.
+ */
+public class VirtualThreadPool implements Executor {
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("virtual-worker-", 1).factory();
+    private volatile boolean isShutdown = false;
+
+    public VirtualThreadPool(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Invalid maxConcurrency: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Blocks the submitter while `maxConcurrency` tasks are already running.
+     */
+    @Override
+    public void execute(Runnable task) throws IllegalStateException {
+        if (isShutdown) {
+            throw new IllegalStateException("Thread pool is shut down");
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a permit", e);
+        }
+        start(task);
+    }
+
+    /**
+     * Non-blocking submission; returns `false` if the concurrency limit is reached.
+     */
+    public boolean trySubmit(Runnable task) {
+        if (isShutdown || !permits.tryAcquire()) {
+            return false;
+        }
+        start(task);
+        return true;
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    private void start(Runnable task) {
+        threadFactory.newThread(() -> {
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }).start();
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    /**
+     * Stops accepting tasks; the ones already running are left to finish.
+     */
+    public void shutdown() {
+        isShutdown = true;
+    }
+
+    /**
+     * Waits until every running task has finished. Since each running task holds a
+     * permit, that's the moment all permits can be acquired.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(maxConcurrency, timeout, unit)) {
+            return false;
+        }
+        permits.release(maxConcurrency);
+        return true;
+    }
+}